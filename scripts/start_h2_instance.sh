@@ -0,0 +1,25 @@
+#!/usr/bin/env bash
+set -euo pipefail
+
+# Start one of several local instances without MySQL: they share an H2 file database (MySQL mode,
+# AUTO_SERVER) created from src/test/resources/schema-h2.sql, and push changes to each other over UDP.
+# H2 comes from the test dependencies; test classes stay off the classpath.
+# Usage: scripts/start_h2_instance.sh <http port> <udp port> <peer udp ports, comma-separated> [extra args]
+#   scripts/start_h2_instance.sh 8888 7070 7071 &
+#   scripts/start_h2_instance.sh 8889 7071 7070 &
+
+PORT=$1 UDP=$2 PEERS=$3
+shift 3
+cd "$(dirname "$0")/.."
+mkdir -p data
+mvn -q -B compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test-classpath.txt
+exec java -cp "target/classes:$(cat target/test-classpath.txt)" com.example.mcp.McpServerApplication \
+  --server.port="$PORT" \
+  --spring.datasource.url="jdbc:h2:file:./data/mcp-h2;MODE=MySQL;DATABASE_TO_LOWER=TRUE;AUTO_SERVER=TRUE" \
+  --spring.datasource.username=sa --spring.datasource.password= \
+  --spring.datasource.driver-class-name=org.h2.Driver \
+  --spring.sql.init.schema-locations=file:src/test/resources/schema-h2.sql \
+  --app.snapshot.path="data/tools-$PORT.snapshot" \
+  --app.notifier.type=udp --app.notifier.udp.port="$UDP" \
+  --app.notifier.udp.peers="$(echo "$PEERS" | sed 's/\([0-9][0-9]*\)/127.0.0.1:\1/g')" \
+  "$@"
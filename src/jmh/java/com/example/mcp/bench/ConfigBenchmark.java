@@ -0,0 +1,119 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.core.config.DbRefresher;
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.PlanWarmer;
+import com.example.mcp.core.executor.ToolPlan;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.core.shard.ShardRing;
+import com.example.mcp.infra.db.SnapshotStore;
+import com.example.mcp.infra.db.ToolRepository;
+import com.example.mcp.infra.db.ToolRow;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.example.mcp.infra.notify.LoopbackChangeNotifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of applying tool rows: parsing one {@code config_json}, compiling it to a plan, and a whole
+ * {@link DbRefresher} pass over {@code rows} changed rows (parse, compare, publish the catalog) with
+ * the database replaced by an in-memory repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+    private final ObjectMapper om = new ObjectMapper();
+    private String json;
+    private PlanCompiler compiler;
+
+    /** A typical http tool: schema, templated query and headers, cache, limits and a retry block. */
+    static String config(String name, int variant) {
+        return """
+                {"name":"%s","description":"Looks up the weather for a city (variant %d)","type":"http",
+                 "inputSchema":{"type":"object","required":["city"],
+                                "properties":{"city":{"type":"string","minLength":1},"units":{"type":"string","enum":["metric","imperial"]}}},
+                 "http":{"method":"GET","url":"http://127.0.0.1:19090/weather/%d","timeoutMs":2000,
+                         "query":{"q":"{{args.city}}","units":"{{args.units}}"},
+                         "headers":{"Authorization":"Bearer {{secrets.WEATHER_TOKEN}}","Accept":"application/json"},
+                         "retry":{"maxAttempts":3,"backoffMs":50}},
+                 "cache":{"ttlMs":60000,"keyFields":["city","units"]},
+                 "limits":{"maxConcurrency":64,"ratePerSec":500}}""".formatted(name, variant, variant);
+    }
+
+    @Setup
+    public void setup() {
+        json = config("weather", 1);
+        compiler = new PlanCompiler(new UpstreamClientManager(10, 10, 1000, 30000, 300000, 10000, 10), new SecretStore(List.of()), 16 << 20);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Refresh {
+        @Param({"100", "1000"})
+        int rows;
+
+        DbRefresher refresher;
+
+        @Setup
+        public void setup() {
+            ObjectMapper om = new ObjectMapper();
+            UpstreamClientManager clients = new UpstreamClientManager(10, 10, 1000, 30000, 300000, 10000, 10);
+            List<String> configs = new ArrayList<>();
+            for (int i = 0; i < rows; i++) configs.add(config("tool_" + i, i % 50));
+            refresher = new DbRefresher(new MemoryRepository(configs), new SnapshotStore(""), new ToolRegistry(om, 500),
+                    new PlanCompiler(clients, new SecretStore(List.of()), 16 << 20), new PlanWarmer(new ToolMetrics(), false, 0, 0), clients, new LoopbackChangeNotifier(), new ShardRing(false, "", ""), om, 1000, 30000);
+        }
+    }
+
+    @Benchmark
+    public ToolConfig parse() throws Exception {
+        return ToolConfig.of(om.readTree(json));
+    }
+
+    @Benchmark
+    public ToolPlan parseAndCompile() throws Exception {
+        return compiler.compile(ToolConfig.of(om.readTree(json)));
+    }
+
+    /** Every pass sees all rows as changed; their configs are unchanged, so handles are reused. */
+    @Benchmark
+    public long refresh(Refresh r) {
+        r.refresher.refresh();
+        return r.refresher.lastVersion();
+    }
+
+    private static final class MemoryRepository extends ToolRepository {
+        private final List<String> configs;
+        private long version;
+
+        MemoryRepository(List<String> configs) {
+            super(null, null);
+            this.configs = configs;
+        }
+
+        @Override
+        public void createSchema() {
+        }
+
+        @Override
+        public List<ToolRow> findChangedSince(long since) {
+            List<ToolRow> res = new ArrayList<>(configs.size());
+            Instant now = Instant.now();
+            for (int i = 0; i < configs.size(); i++) {
+                res.add(new ToolRow((long) i, "tool_" + i, true, configs.get(i), ++version, now));
+            }
+            return res;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Fires thousands of concurrent feign-type calls at a slow in-process upstream and reports
+ * wall time and peak thread count.
+ *
+ * <pre>mvn -Pbench test-compile exec:exec -Djmh.main=com.example.mcp.bench.FeignLoadTest -Djmh.args="5000 2000 reactive"</pre>
+ */
+public class FeignLoadTest {
+    public static void main(String[] argv) throws Exception {
+        int calls = argv.length > 0 ? Integer.parseInt(argv[0]) : 5000;
+        long delayMs = argv.length > 1 ? Long.parseLong(argv[1]) : 2000;
+        String engine = argv.length > 2 ? argv[2] : "reactive";
+        ((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.INFO);
+
+        DisposableServer upstream = HttpServer.create().port(0)
+                .handle((req, res) -> res.header("Content-Type", "application/json")
+                        .sendString(Mono.delay(Duration.ofMillis(delayMs)).thenReturn("{\"ok\":1}")))
+                .bindNow();
+        ObjectMapper om = new ObjectMapper();
+        UpstreamClientManager clients = new UpstreamClientManager(calls, calls, 60000, 30000, 300000, 10000, calls);
+        ToolExecutor executor = new ToolExecutor(clients, new ToolMetrics(), null, om, engine, 0, 0, 0, 1000);
+        JsonNode feign = om.readTree("{\"method\":\"GET\",\"baseUrl\":\"http://127.0.0.1:" + upstream.port()
+                + "\",\"path\":\"/slow/{{args.i}}\",\"timeoutMs\":" + (delayMs * 10) + "}");
+        ToolConfig cfg = new ToolConfig("slow", null, "feign", null, null, feign, null, null, null, false);
+        ToolHandle handle = new ToolHandle(cfg, new PlanCompiler(clients, new SecretStore(List.of()), 16 << 20).compile(cfg));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        long ok = Flux.range(0, calls)
+                .flatMap(i -> executor.executeReactive(handle, om.createObjectNode().put("i", i)), calls)
+                .filter(r -> Boolean.TRUE.equals(r.get("ok")))
+                .count()
+                .block();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        System.out.printf("engine=%s calls=%d ok=%d upstreamDelay=%dms elapsed=%dms peakThreads=%d%n",
+                engine, calls, ok, delayMs, elapsedMs, threads.getPeakThreadCount());
+        clients.close();
+        upstream.disposeNow();
+        System.exit(0);
+    }
+}
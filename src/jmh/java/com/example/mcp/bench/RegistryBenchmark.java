@@ -0,0 +1,78 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request registry work: the tool lookup of every call and serving a tools/list page, which
+ * should cost the same whatever the number of tools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"100", "10000"})
+    int tools;
+
+    private ToolRegistry registry;
+    private String[] names;
+    private String cursor;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        UpstreamClientManager clients = new UpstreamClientManager(10, 10, 1000, 30000, 300000, 10000, 10);
+        PlanCompiler compiler = new PlanCompiler(clients, new SecretStore(List.of()), 16 << 20);
+        Map<String, ToolHandle> snap = new HashMap<>();
+        names = new String[tools];
+        for (int i = 0; i < tools; i++) {
+            names[i] = "tool_" + i;
+            ToolConfig cfg = ToolConfig.of(om.readTree(ConfigBenchmark.config(names[i], i % 50)));
+            snap.put(names[i], new ToolHandle(cfg, compiler.compile(cfg)));
+        }
+        registry = new ToolRegistry(om, PAGE_SIZE);
+        registry.replace(snap, 1);
+        // The nextCursor of the first page: served precomputed, like any cursor this server hands out
+        String[] sorted = names.clone();
+        Arrays.sort(sorted);
+        cursor = Base64.getUrlEncoder().withoutPadding().encodeToString(sorted[PAGE_SIZE].getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Optional<ToolHandle> get() {
+        String name = names[next];
+        next = next + 1 == names.length ? 0 : next + 1;
+        return registry.get(name);
+    }
+
+    @Benchmark
+    public byte[] listFirstPage() {
+        return registry.catalog().page(null);
+    }
+
+    @Benchmark
+    public byte[] listAtCursor() {
+        return registry.catalog().page(cursor);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.core.executor.SchemaValidator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation cost per call for typical tool schemas; run with {@code -prof gc} to check the
+ * happy path stays allocation-free.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaValidatorBenchmark {
+    /** A lookup tool: two scalar arguments, one required, an enum. */
+    private static final String FLAT_SCHEMA = """
+            {"type":"object","required":["city"],"additionalProperties":false,
+             "properties":{"city":{"type":"string","minLength":1,"maxLength":64},
+                           "units":{"type":"string","enum":["metric","imperial"]}}}""";
+    private static final String FLAT_ARGS = """
+            {"city":"Berlin","units":"metric"}""";
+
+    /** A search tool: nested filter object, bounded numbers, an array of tags. */
+    private static final String NESTED_SCHEMA = """
+            {"type":"object","required":["query"],
+             "properties":{"query":{"type":"string","minLength":1},
+                           "limit":{"type":"integer","minimum":1,"maximum":100},
+                           "filter":{"type":"object","properties":{
+                               "from":{"type":"string"},"to":{"type":"string"},
+                               "status":{"type":["string","null"],"enum":["open","closed",null]}}},
+                           "tags":{"type":"array","maxItems":10,"items":{"type":"string","maxLength":32}}}}""";
+    private static final String NESTED_ARGS = """
+            {"query":"latency regression","limit":20,
+             "filter":{"from":"2024-01-01","to":"2024-02-01","status":"open"},
+             "tags":["perf","netty","gateway","p99"]}""";
+
+    private SchemaValidator flat;
+    private SchemaValidator nested;
+    private JsonNode flatArgs;
+    private JsonNode nestedArgs;
+    private JsonNode nestedInvalid;
+
+    @Setup
+    public void setup() throws Exception {
+        ObjectMapper om = new ObjectMapper();
+        flat = SchemaValidator.compile(om.readTree(FLAT_SCHEMA));
+        nested = SchemaValidator.compile(om.readTree(NESTED_SCHEMA));
+        flatArgs = om.readTree(FLAT_ARGS);
+        nestedArgs = om.readTree(NESTED_ARGS);
+        nestedInvalid = om.readTree(NESTED_ARGS.replace("\"limit\":20", "\"limit\":500"));
+    }
+
+    @Benchmark
+    public String flatValid() {
+        return flat.validate(flatArgs);
+    }
+
+    @Benchmark
+    public String nestedValid() {
+        return nested.validate(nestedArgs);
+    }
+
+    @Benchmark
+    public String nestedInvalid() {
+        return nested.validate(nestedInvalid);
+    }
+}
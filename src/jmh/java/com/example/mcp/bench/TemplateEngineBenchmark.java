@@ -0,0 +1,66 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.core.executor.Template;
+import com.example.mcp.core.executor.TemplateEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateEngineBenchmark {
+    /** Number of placeholders in the template (half args, half secrets). */
+    @Param({"2", "8", "32"})
+    int placeholders;
+
+    /** Size of the secrets map, i.e. the environment handed to the engine. */
+    @Param({"10", "100", "500"})
+    int envSize;
+
+    private final LegacyTemplateEngine legacy = new LegacyTemplateEngine();
+    private String source;
+    private Template compiled;
+    private JsonNode args;
+    private Map<String, String> secrets;
+
+    @Setup
+    public void setup() {
+        ObjectNode a = new ObjectMapper().createObjectNode();
+        secrets = new HashMap<>();
+        for (int i = 0; i < envSize; i++) secrets.put("ENV_" + i, "value-" + i);
+        StringBuilder tpl = new StringBuilder("{\"q\":{");
+        for (int i = 0; i < placeholders; i++) {
+            if (i > 0) tpl.append(',');
+            if (i % 2 == 0) {
+                a.put("field" + i, "arg value " + i);
+                tpl.append("\"f").append(i).append("\":\"{{args.field").append(i).append("}}\"");
+            } else {
+                secrets.put("KEY_" + i, "secret-" + i);
+                tpl.append("\"s").append(i).append("\":\"{{secrets.KEY_").append(i).append("}}\"");
+            }
+        }
+        tpl.append("}}");
+        args = a;
+        source = tpl.toString();
+        compiled = new TemplateEngine().compile(source, Template.Escape.JSON);
+    }
+
+    @Benchmark
+    public String legacyReplace() {
+        return legacy.render(source, args, secrets);
+    }
+
+    @Benchmark
+    public String compiledSinglePass() {
+        return compiled.render(args, secrets);
+    }
+}
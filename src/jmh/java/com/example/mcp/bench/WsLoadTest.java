@@ -0,0 +1,137 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.adapter.mcp.ws.McpWebSocketHandler;
+import com.example.mcp.core.executor.BatchExecutor;
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.metrics.LatencyHistogram;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.adapter.ReactorNettyWebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Opens many /mcp/ws sessions against the WebSocket handler, served in-process together with a stub
+ * upstream that answers after a fixed delay. One greedy session pipelines a large burst while the
+ * polite sessions send one call at a time; the polite latency shows whether the greedy session is
+ * kept to its in-flight limit. The executor's global limit is the shared bottleneck.
+ *
+ * <pre>mvn -Pbench test-compile exec:exec -Djmh.main=com.example.mcp.bench.WsLoadTest \
+ *     -Djmh.args="sessions=200 calls=50 greedy=20000 delayMs=20 maxInFlight=32 maxQueued=64 global=256"</pre>
+ */
+public class WsLoadTest {
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> a = new java.util.HashMap<>();
+        for (String arg : argv) a.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        int sessions = Integer.parseInt(a.getOrDefault("sessions", "200"));
+        int calls = Integer.parseInt(a.getOrDefault("calls", "50"));
+        int greedy = Integer.parseInt(a.getOrDefault("greedy", "20000"));
+        long delayMs = Long.parseLong(a.getOrDefault("delayMs", "20"));
+        int maxInFlight = Integer.parseInt(a.getOrDefault("maxInFlight", "32"));
+        int maxQueued = Integer.parseInt(a.getOrDefault("maxQueued", "64"));
+        int global = Integer.parseInt(a.getOrDefault("global", "256"));
+        ((ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        DisposableServer upstream = HttpServer.create().port(0)
+                .handle((req, res) -> res.header("Content-Type", "application/json")
+                        .sendString(Mono.delay(Duration.ofMillis(delayMs)).thenReturn("{\"ok\":1}")))
+                .bindNow();
+        ObjectMapper om = new ObjectMapper();
+        UpstreamClientManager clients = new UpstreamClientManager(1000, 100_000, 60000, 30000, 300000, 10000, 1000);
+        ToolMetrics metrics = new ToolMetrics();
+        ToolExecutor executor = new ToolExecutor(clients, metrics, null, om, "reactive", global, 0, 100_000, 60_000);
+        JsonNode http = om.readTree("{\"method\":\"GET\",\"url\":\"http://127.0.0.1:" + upstream.port()
+                + "/echo/{{args.i}}\",\"timeoutMs\":60000,\"http2\":false}");
+        ToolConfig cfg = new ToolConfig("echo", null, "http", null, http, null, null, null, null, false);
+        ToolRegistry registry = new ToolRegistry(om, 500);
+        registry.replace(Map.of("echo", new ToolHandle(cfg, new PlanCompiler(clients, new SecretStore(List.of()), 16 << 20).compile(cfg))), 1);
+        McpWebSocketHandler handler = new McpWebSocketHandler(registry, executor,
+                new BatchExecutor(registry, executor, 100, 8, 10000), metrics, om, false, maxInFlight, maxQueued, false);
+
+        NettyDataBufferFactory buffers = new NettyDataBufferFactory(io.netty.buffer.ByteBufAllocator.DEFAULT);
+        HandshakeInfo info = new HandshakeInfo(URI.create("/mcp/ws"), new HttpHeaders(), Mono.empty(), null);
+        DisposableServer server = HttpServer.create().port(0)
+                .route(r -> r.ws("/mcp/ws", (in, out) -> handler.handle(new ReactorNettyWebSocketSession(in, out, info, buffers))))
+                .bindNow();
+        HttpClient.WebsocketSender ws = HttpClient.create().websocket().uri("ws://127.0.0.1:" + server.port() + "/mcp/ws");
+
+        LatencyHistogram polite = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        AtomicLong greedyDoneAt = new AtomicLong();
+        Mono<Long> greedySession = ws.handle((in, out) -> Flux.merge(
+                        out.sendString(Flux.range(0, greedy).map(i -> call(i, i))).then().then(Mono.<String>empty()),
+                        in.receive().asString().take(greedy)))
+                .doOnNext(r -> countError(r, errors))
+                .count()
+                .doOnSuccess(n -> greedyDoneAt.set(System.nanoTime()));
+        Flux<Long> politeSessions = Flux.range(0, sessions).flatMap(s -> ws.handle((in, out) -> {
+            Sinks.Many<String> requests = Sinks.many().unicast().onBackpressureBuffer();
+            AtomicInteger sent = new AtomicInteger();
+            AtomicLong sentAt = new AtomicLong();
+            Runnable next = () -> {
+                sentAt.set(System.nanoTime());
+                requests.tryEmitNext(call(sent.get(), sent.getAndIncrement()));
+            };
+            return Flux.merge(
+                    out.sendString(requests.asFlux()).then().then(Mono.<String>empty()),
+                    in.receive().asString().take(calls)
+                            .doOnSubscribe(sub -> next.run())
+                            .doOnNext(r -> {
+                                polite.record(System.nanoTime() - sentAt.get());
+                                countError(r, errors);
+                                if (sent.get() < calls) next.run();
+                                else requests.tryEmitComplete();
+                            }));
+        }).count(), sessions);
+
+        long[] counts = Flux.merge(greedySession.flux(), politeSessions)
+                .collectList()
+                .map(l -> l.stream().mapToLong(Long::longValue).toArray())
+                .block();
+        long elapsed = System.nanoTime() - start;
+        long replies = java.util.Arrays.stream(counts).sum();
+
+        System.out.printf("sessions=%d calls=%d greedy=%d maxInFlight=%d maxQueued=%d global=%d upstreamDelay=%dms%n",
+                sessions, calls, greedy, maxInFlight, maxQueued, global, delayMs);
+        System.out.printf("replies=%d errors=%d elapsed=%dms greedyDone=%dms%n", replies, errors.get(),
+                Duration.ofNanos(elapsed).toMillis(), Duration.ofNanos(greedyDoneAt.get() - start).toMillis());
+        System.out.printf("polite latency p50=%.1fms p95=%.1fms p99=%.1fms (n=%d)%n",
+                polite.percentileNanos(0.50) / 1e6, polite.percentileNanos(0.95) / 1e6,
+                polite.percentileNanos(0.99) / 1e6, polite.count());
+        server.disposeNow();
+        clients.close();
+        upstream.disposeNow();
+        System.exit(0);
+    }
+
+    private static String call(int id, int i) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\",\"params\":{\"tool\":\"echo\",\"arguments\":{\"i\":" + i + "}}}";
+    }
+
+    private static void countError(String reply, AtomicLong errors) {
+        if (!reply.contains("\"result\"")) errors.incrementAndGet();
+    }
+}
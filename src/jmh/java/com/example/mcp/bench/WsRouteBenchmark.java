@@ -0,0 +1,148 @@
+package com.example.mcp.bench;
+
+import com.example.mcp.adapter.mcp.ws.McpWebSocketHandler;
+import com.example.mcp.core.executor.BatchExecutor;
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.adapter.ReactorNettyWebSocketSession;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JSON-RPC round trip over /mcp/ws per operation: client frame, handler, executor, an in-process
+ * Netty stub upstream answering a ~2 KB JSON document without delay, and the reply frame. Server and
+ * client share the JVM, so {@code -prof gc} bytes/op covers the whole path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WsRouteBenchmark {
+    private DisposableServer upstream;
+    private DisposableServer server;
+    private UpstreamClientManager clients;
+    private URI uri;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder doc = new StringBuilder("{\"city\":\"Berlin\",\"hourly\":[");
+        for (int i = 0; i < 24; i++) {
+            if (i > 0) doc.append(',');
+            doc.append("{\"hour\":").append(i).append(",\"temp\":").append(10 + i % 7)
+                    .append(".5,\"wind\":").append(i % 5).append(",\"summary\":\"partly cloudy\"}");
+        }
+        String body = doc.append("]}").toString();
+        upstream = HttpServer.create().port(0)
+                .handle((req, res) -> res.header("Content-Type", "application/json").sendString(Mono.just(body)))
+                .bindNow();
+
+        ObjectMapper om = new ObjectMapper();
+        clients = new UpstreamClientManager(64, 1000, 5000, 30000, 300000, 10000, 64);
+        ToolMetrics metrics = new ToolMetrics();
+        ToolExecutor executor = new ToolExecutor(clients, metrics, null, om, "reactive", 0, 0, 0, 1000);
+        PlanCompiler compiler = new PlanCompiler(clients, new SecretStore(List.of()), 16 << 20);
+        Map<String, ToolHandle> tools = new HashMap<>();
+        for (boolean passthrough : new boolean[]{false, true}) {
+            String name = passthrough ? "weather_raw" : "weather";
+            ToolConfig cfg = ToolConfig.of(om.readTree("""
+                    {"name":"%s","type":"http","inputSchema":{"type":"object","required":["city"]},
+                     "http":{"method":"GET","url":"http://127.0.0.1:%d/weather?q={{args.city}}","http2":false},
+                     "response":{"passthrough":%s}}""".formatted(name, upstream.port(), passthrough)));
+            tools.put(name, new ToolHandle(cfg, compiler.compile(cfg)));
+        }
+        ToolRegistry registry = new ToolRegistry(om, 500);
+        registry.replace(tools, 1);
+        McpWebSocketHandler handler = new McpWebSocketHandler(registry, executor,
+                new BatchExecutor(registry, executor, 100, 8, 10000), metrics, om, false, 32, 64, false);
+
+        NettyDataBufferFactory buffers = new NettyDataBufferFactory(io.netty.buffer.ByteBufAllocator.DEFAULT);
+        HandshakeInfo info = new HandshakeInfo(URI.create("/mcp/ws"), new HttpHeaders(), Mono.empty(), null);
+        server = HttpServer.create().port(0)
+                .route(r -> r.ws("/mcp/ws", (in, out) -> handler.handle(new ReactorNettyWebSocketSession(in, out, info, buffers))))
+                .bindNow();
+        uri = URI.create("ws://127.0.0.1:" + server.port() + "/mcp/ws");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.disposeNow();
+        clients.close();
+        upstream.disposeNow();
+    }
+
+    /** One connection per benchmark thread with a single request outstanding. */
+    @State(Scope.Thread)
+    public static class Client implements WebSocket.Listener {
+        private final StringBuilder frame = new StringBuilder();
+        private WebSocket ws;
+        private CompletableFuture<String> reply;
+        private long id;
+
+        @Setup
+        public void open(WsRouteBenchmark bench) throws Exception {
+            ws = HttpClient.newHttpClient().newWebSocketBuilder().buildAsync(bench.uri, this).get(5, TimeUnit.SECONDS);
+        }
+
+        @TearDown
+        public void close() throws Exception {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "").get(5, TimeUnit.SECONDS);
+        }
+
+        String roundTrip(String method, String params) throws Exception {
+            reply = new CompletableFuture<>();
+            ws.sendText("{\"jsonrpc\":\"2.0\",\"id\":" + (++id) + ",\"method\":\"" + method + "\",\"params\":" + params + "}", true);
+            return reply.get(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public CompletionStage<?> onText(WebSocket w, CharSequence data, boolean last) {
+            frame.append(data);
+            if (last) {
+                String s = frame.toString();
+                frame.setLength(0);
+                reply.complete(s);
+            }
+            w.request(1);
+            return null;
+        }
+    }
+
+    @Benchmark
+    public String toolsCall(Client c) throws Exception {
+        return c.roundTrip("tools/call", "{\"tool\":\"weather\",\"arguments\":{\"city\":\"Berlin\"}}");
+    }
+
+    @Benchmark
+    public String toolsCallPassthrough(Client c) throws Exception {
+        return c.roundTrip("tools/call", "{\"tool\":\"weather_raw\",\"arguments\":{\"city\":\"Berlin\"}}");
+    }
+
+    @Benchmark
+    public String toolsList(Client c) throws Exception {
+        return c.roundTrip("tools/list", "{}");
+    }
+}
@@ -1,38 +1,159 @@
 package com.example.mcp.adapter.admin;
 
 import com.example.mcp.core.config.DbRefresher;
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.infra.db.JdbcScheduler;
 import com.example.mcp.infra.db.ToolRepository;
+import com.example.mcp.infra.http.UpstreamClientManager;
 import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping(path = "/admin", produces = MediaType.APPLICATION_JSON_VALUE)
 public class AdminController {
+    private static final Logger log = LoggerFactory.getLogger(AdminController.class);
+
     private final ToolRepository repo;
+    private final JdbcScheduler jdbc;
     private final DbRefresher refresher;
+    private final UpstreamClientManager clients;
+    private final ToolRegistry registry;
+    private final ToolExecutor executor;
+    private final ToolMetrics metrics;
+    private final PlanCompiler compiler;
 
-    public AdminController(ToolRepository repo, DbRefresher refresher) {
+    public AdminController(ToolRepository repo, JdbcScheduler jdbc, DbRefresher refresher, UpstreamClientManager clients,
+                           ToolRegistry registry, ToolExecutor executor, ToolMetrics metrics, PlanCompiler compiler) {
         this.repo = repo;
+        this.jdbc = jdbc;
         this.refresher = refresher;
+        this.clients = clients;
+        this.registry = registry;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.compiler = compiler;
     }
 
     public record UpsertReq(String name, boolean enabled, JsonNode configJson) {}
 
     @PostMapping("/tools")
-    public Map<String, Object> upsert(@RequestBody UpsertReq req) {
-        repo.upsert(req.name(), req.enabled(), req.configJson().toString());
-        refresher.refreshNow();
-        return Map.of("ok", true);
+    public Mono<Map<String, Object>> upsert(@RequestBody UpsertReq req) {
+        return Mono.fromCallable(() -> row(req)).flatMap(row -> write(() -> {
+            repo.upsert(row.name(), row.enabled(), row.configJson());
+            return Map.of("ok", true);
+        }));
+    }
+
+    /**
+     * Bulk onboarding: all tools in one transaction and batched statements, then a single refresh.
+     * The array is decoded element by element, so the codec's size limit applies per tool.
+     */
+    @PostMapping("/tools:import")
+    public Mono<Map<String, Object>> importTools(@RequestBody Flux<UpsertReq> tools) {
+        return tools
+                .map(this::row)
+                .collectList()
+                .flatMap(rows -> write(() -> {
+                    if (!rows.isEmpty()) repo.upsertAll(rows);
+                    return Map.of("ok", true, "imported", rows.size());
+                }));
     }
 
     @DeleteMapping("/tools/{name}")
-    public Map<String, Object> disable(@PathVariable("name") String name) {
-        repo.setEnabled(name, false);
-        refresher.refreshNow();
-        return Map.of("ok", true);
+    public Mono<Map<String, Object>> disable(@PathVariable("name") String name) {
+        return write(() -> {
+            repo.setEnabled(name, false);
+            return Map.of("ok", true);
+        });
+    }
+
+    // Compiled here as the refresh would, so a config that could never be published is refused before it is stored
+    private ToolRepository.Upsert row(UpsertReq t) {
+        if (t.name() == null || t.configJson() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every tool needs a name and a configJson");
+        }
+        try {
+            compiler.compile(ToolConfig.of(t.configJson()));
+        } catch (RuntimeException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid config for " + t.name() + ": " + e.getMessage());
+        }
+        return new ToolRepository.Upsert(t.name(), t.enabled(), t.configJson().toString());
+    }
+
+    /**
+     * Runs a write and the refresh after it on the JDBC scheduler, both block on JDBC. A full queue
+     * answers 503. A refresh failing after the write committed still reports the write: the next
+     * scheduled poll applies it.
+     */
+    private Mono<Map<String, Object>> write(Callable<Map<String, Object>> work) {
+        return jdbc.call(() -> {
+                    Map<String, Object> res = work.call();
+                    try {
+                        refresher.refreshNow();
+                    } catch (RuntimeException e) {
+                        log.warn("Refresh after admin write failed, left to the next poll: {}", e.getMessage());
+                    }
+                    return res;
+                })
+                .onErrorMap(RejectedExecutionException.class,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many admin writes queued, retry later"));
     }
-}
 
+    @GetMapping("/upstreams")
+    public List<Map<String, Object>> upstreams() {
+        return clients.stats();
+    }
+
+    @GetMapping("/cache")
+    public Map<String, Object> cache() {
+        Map<String, Object> res = new TreeMap<>();
+        for (ToolHandle h : registry.handles()) {
+            if (h.plan().cache() == null && h.plan().inFlight() == null) continue;
+            Map<String, Object> m = new LinkedHashMap<>();
+            if (h.plan().cache() != null) m.putAll(h.plan().cache().stats());
+            if (h.plan().inFlight() != null) m.put("coalesced", h.plan().inFlight().coalesced());
+            res.put(h.config().name(), m);
+        }
+        return res;
+    }
+
+    @GetMapping("/limits")
+    public Map<String, Object> limits() {
+        Map<String, Object> res = new TreeMap<>();
+        for (ToolHandle h : registry.handles()) {
+            if (h.plan().limiter() == null && h.plan().policy() == null) continue;
+            Map<String, Object> m = new LinkedHashMap<>();
+            if (h.plan().limiter() != null) m.putAll(h.plan().limiter().stats());
+            if (h.plan().policy() != null) m.putAll(h.plan().policy().stats());
+            res.put(h.config().name(), m);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("global", executor.globalLimiter() == null ? null : executor.globalLimiter().stats());
+        out.put("tools", res);
+        return out;
+    }
+
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return metrics.json();
+    }
+}
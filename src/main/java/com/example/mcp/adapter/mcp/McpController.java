@@ -1,42 +1,160 @@
 package com.example.mcp.adapter.mcp;
 
+import com.example.mcp.core.executor.BatchExecutor;
+import com.example.mcp.core.executor.StreamingBody;
 import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.executor.ToolLimiter;
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolCatalog;
 import com.example.mcp.core.registry.ToolRegistry;
 import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.shard.PeerForwarder;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @RestController
 @RequestMapping(path = "/mcp", produces = MediaType.APPLICATION_JSON_VALUE)
 public class McpController {
+    private static final byte[] STREAM_PREFIX = "{\"ok\":true,\"result\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAM_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
     private final ToolRegistry registry;
     private final ToolExecutor executor;
-    private final ObjectMapper om = new ObjectMapper();
+    private final BatchExecutor batches;
+    private final ToolMetrics metrics;
+    private final ObjectMapper om;
 
-    public McpController(ToolRegistry registry, ToolExecutor executor) {
+    public McpController(ToolRegistry registry, ToolExecutor executor, BatchExecutor batches, ToolMetrics metrics,
+                         ObjectMapper om) {
         this.registry = registry;
         this.executor = executor;
+        this.batches = batches;
+        this.metrics = metrics;
+        this.om = om;
     }
 
+    /** Serves the precomputed page; the ETag lets clients revalidate with If-None-Match and get a 304. */
     @GetMapping("/tools")
-    public Map<String, Object> listTools() {
-        return Map.of("tools", registry.list());
+    public ResponseEntity<byte[]> listTools(@RequestParam(required = false) String cursor) throws Exception {
+        ToolCatalog catalog = registry.catalog();
+        byte[] page;
+        try {
+            page = catalog.page(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(om.writeValueAsBytes(error("INVALID_PARAMS", e.getMessage())));
+        }
+        return ResponseEntity.ok()
+                .eTag(catalog.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(page);
     }
 
     public record CallReq(String tool, JsonNode arguments) {}
 
     @PostMapping("/tools/call")
-    public Mono<Map<String, Object>> call(@RequestBody CallReq req) {
+    public Flux<DataBuffer> call(@RequestBody CallReq req, ServerHttpResponse response) {
+        DataBufferFactory factory = response.bufferFactory();
         Optional<ToolHandle> h = registry.get(req.tool());
         if (h.isEmpty()) {
-            return Mono.just(error("NOT_FOUND", "Tool not found: " + req.tool()));
+            return json(factory, error("NOT_FOUND", "Tool not found: " + req.tool()), null);
+        }
+        return executor.executeReactive(h.get(), req.arguments())
+                .flatMapMany(res -> {
+                    if (res.get("result") instanceof StreamingBody body) {
+                        return StreamingEnvelope.wrap(factory, STREAM_PREFIX, body.content(), STREAM_SUFFIX);
+                    }
+                    HttpStatus shed = shedStatus(res);
+                    if (shed != null) response.setStatusCode(shed);
+                    return json(factory, res, metrics.tool(req.tool()));
+                });
+    }
+
+    public record BatchReq(List<CallReq> calls, Integer parallelism, Long deadlineMs) {}
+
+    /**
+     * Runs the calls in parallel and streams one line per call as it completes: NDJSON, or SSE when
+     * asked for. Each line is a single call's response plus its {@code index} in {@code calls}.
+     */
+    @PostMapping(path = "/tools/call:batch", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<Flux<DataBuffer>> callBatch(@RequestBody BatchReq req, ServerHttpRequest request,
+                                                      ServerHttpResponse response) {
+        DataBufferFactory factory = response.bufferFactory();
+        Flux<BatchExecutor.Result> results;
+        try {
+            List<BatchExecutor.Call> calls = req.calls() == null ? null : req.calls().stream()
+                    .map(c -> new BatchExecutor.Call(c.tool(), c.arguments()))
+                    .toList();
+            results = batches.execute(calls, req.parallelism(), req.deadlineMs());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(json(factory, error("INVALID_PARAMS", e.getMessage()), null));
+        }
+        boolean sse = request.getHeaders().getAccept().stream().anyMatch(MediaType.TEXT_EVENT_STREAM::equalsTypeAndSubtype);
+        return ResponseEntity.ok()
+                .contentType(sse ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_NDJSON)
+                .body(results.map(r -> line(factory, r, sse)));
+    }
+
+    private DataBuffer line(DataBufferFactory factory, BatchExecutor.Result r, boolean sse) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", r.index());
+        line.putAll(r.response());
+        DataBuffer buf = factory.allocateBuffer(512);
+        try (OutputStream out = buf.asOutputStream(); JsonGenerator g = om.createGenerator(out)) {
+            if (sse) g.writeRaw("data: ");
+            g.writeObject(line);
+            g.writeRaw(sse ? "\n\n" : "\n");
+        } catch (IOException e) {
+            DataBufferUtils.release(buf);
+            throw new UncheckedIOException(e);
         }
-        return executor.executeReactive(h.get(), req.arguments());
+        return buf;
+    }
+
+    // Shed calls get a status proxies and clients already know how to back off from
+    @SuppressWarnings("unchecked")
+    private static HttpStatus shedStatus(Map<String, Object> res) {
+        if (!(res.get("error") instanceof Map<?, ?> err)) return null;
+        return switch (String.valueOf(((Map<String, Object>) err).get("code"))) {
+            case ToolLimiter.RATE_LIMITED -> HttpStatus.TOO_MANY_REQUESTS;
+            case ToolLimiter.OVERLOADED, ToolLimiter.QUEUE_TIMEOUT, "CIRCUIT_OPEN", PeerForwarder.PEER_UNAVAILABLE ->
+                    HttpStatus.SERVICE_UNAVAILABLE;
+            default -> null;
+        };
+    }
+
+    private Flux<DataBuffer> json(DataBufferFactory factory, Object value, ToolMetrics.Tool m) {
+        return Mono.fromCallable(() -> {
+            long start = System.nanoTime();
+            DataBuffer buf = factory.allocateBuffer(512);
+            try (OutputStream out = buf.asOutputStream()) {
+                om.writeValue(out, value);
+            } catch (Exception e) {
+                DataBufferUtils.release(buf);
+                throw e;
+            }
+            if (m != null) m.record(ToolMetrics.Phase.SERIALIZE, System.nanoTime() - start);
+            return buf;
+        }).flux();
     }
 
     private Map<String, Object> error(String code, String message) {
@@ -49,4 +167,3 @@ public class McpController {
         return err;
     }
 }
-
@@ -0,0 +1,25 @@
+package com.example.mcp.adapter.mcp;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splices a raw JSON body between a pre-encoded envelope prefix and suffix, so pass-through
+ * results reach the client without being decoded or re-serialized.
+ */
+public final class StreamingEnvelope {
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private StreamingEnvelope() {}
+
+    public static Flux<DataBuffer> wrap(DataBufferFactory factory, byte[] prefix, Flux<DataBuffer> content, byte[] suffix) {
+        return Flux.concat(
+                Mono.fromSupplier(() -> factory.wrap(prefix)),
+                content.switchIfEmpty(Mono.fromSupplier(() -> factory.wrap(NULL))),
+                Mono.fromSupplier(() -> factory.wrap(suffix)));
+    }
+}
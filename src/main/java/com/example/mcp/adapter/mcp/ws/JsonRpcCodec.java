@@ -0,0 +1,217 @@
+package com.example.mcp.adapter.mcp.ws;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON-RPC framing for /mcp/ws and /mcp/stream without intermediate trees or strings. Requests are
+ * read with the streaming parser straight from the frame's buffer and only {@code params.arguments}
+ * (and the ids) become trees; replies are generated straight into a buffer of the caller's factory.
+ */
+final class JsonRpcCodec {
+    private static final int REPLY_CAPACITY = 512;
+    private static final byte[] RESULT_HEAD = "{\"jsonrpc\":\"2.0\",\"id\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RESULT_FIELD = ",\"result\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    /** One request or notification; {@code id} is null for a notification. */
+    record Message(JsonNode id, String method, String tool, JsonNode arguments, String cursor, JsonNode requestId,
+                   JsonNode progressToken) {
+        /** Not a JSON-RPC request object: -32600. */
+        static final Message INVALID = new Message(null, null, null, MissingNode.getInstance(), null, null, null);
+    }
+
+    /** A frame holds one message, or several when {@code batch}. */
+    record Frame(boolean batch, List<Message> messages) {}
+
+    @FunctionalInterface
+    interface Body {
+        void write(JsonGenerator g) throws IOException;
+    }
+
+    private final ObjectMapper om;
+
+    JsonRpcCodec(ObjectMapper om) {
+        this.om = om;
+    }
+
+    /** Throws on malformed JSON, which the caller answers with -32700. */
+    Frame decode(DataBuffer payload) throws IOException {
+        try (InputStream in = payload.asInputStream(); JsonParser p = om.createParser(in)) {
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_ARRAY) {
+                List<Message> messages = new ArrayList<>();
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+                    if (t == null) throw new IOException("Unexpected end of input");
+                    messages.add(t == JsonToken.START_OBJECT ? message(p) : skip(p));
+                }
+                return new Frame(true, messages);
+            }
+            if (t == null) throw new IOException("No content");
+            return new Frame(false, List.of(t == JsonToken.START_OBJECT ? message(p) : skip(p)));
+        }
+    }
+
+    private Message message(JsonParser p) throws IOException {
+        JsonNode id = null;
+        String method = null;
+        String tool = null;
+        JsonNode arguments = MissingNode.getInstance();
+        String cursor = null;
+        JsonNode requestId = null;
+        JsonNode progressToken = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (field) {
+                case "id" -> id = tree(p);
+                case "method" -> method = text(p, t);
+                case "params" -> {
+                    if (t != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        break;
+                    }
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String param = p.currentName();
+                        JsonToken v = p.nextToken();
+                        switch (param) {
+                            case "tool" -> tool = text(p, v);
+                            case "arguments" -> arguments = tree(p);
+                            case "cursor" -> cursor = text(p, v);
+                            case "requestId" -> requestId = tree(p);
+                            case "_meta" -> progressToken = progressToken(p, v);
+                            default -> p.skipChildren();
+                        }
+                    }
+                }
+                default -> p.skipChildren();
+            }
+        }
+        return new Message(id, method, tool, arguments, cursor, requestId, progressToken);
+    }
+
+    private JsonNode progressToken(JsonParser p, JsonToken t) throws IOException {
+        if (t != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return null;
+        }
+        JsonNode token = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            boolean match = "progressToken".equals(p.currentName());
+            p.nextToken();
+            if (match) token = tree(p);
+            else p.skipChildren();
+        }
+        return token;
+    }
+
+    private static Message skip(JsonParser p) throws IOException {
+        p.skipChildren();
+        return Message.INVALID;
+    }
+
+    private JsonNode tree(JsonParser p) throws IOException {
+        JsonNode n = om.readTree(p);
+        return n != null ? n : NullNode.getInstance();
+    }
+
+    private static String text(JsonParser p, JsonToken t) throws IOException {
+        if (t.isScalarValue()) return p.getValueAsString();
+        p.skipChildren();
+        return null;
+    }
+
+    DataBuffer result(DataBufferFactory factory, JsonNode id, Body result) {
+        return write(factory, id, g -> {
+            g.writeFieldName("result");
+            result.write(g);
+        });
+    }
+
+    /** {@code {"content": value}} as the result, generated from the value without an intermediate tree. */
+    DataBuffer content(DataBufferFactory factory, JsonNode id, Object value) {
+        return result(factory, id, g -> {
+            g.writeStartObject();
+            g.writeFieldName("content");
+            g.writeObject(value);
+            g.writeEndObject();
+        });
+    }
+
+    DataBuffer error(DataBufferFactory factory, JsonNode id, int code, String message) {
+        return write(factory, id, g -> {
+            g.writeObjectFieldStart("error");
+            g.writeNumberField("code", code);
+            g.writeStringField("message", message);
+            g.writeEndObject();
+        });
+    }
+
+    DataBuffer notification(DataBufferFactory factory, String method, Body params) {
+        return object(factory, g -> {
+            g.writeStringField("jsonrpc", "2.0");
+            g.writeStringField("method", method);
+            g.writeFieldName("params");
+            params.write(g);
+        });
+    }
+
+    /** A result reply up to its value, then {@code open}, for splicing pre-encoded or raw bytes after it. */
+    byte[] resultPrefix(JsonNode id, byte[] open) {
+        byte[] idJson;
+        try {
+            idJson = id == null ? NULL : om.writeValueAsBytes(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] out = new byte[RESULT_HEAD.length + idJson.length + RESULT_FIELD.length + open.length];
+        System.arraycopy(RESULT_HEAD, 0, out, 0, RESULT_HEAD.length);
+        System.arraycopy(idJson, 0, out, RESULT_HEAD.length, idJson.length);
+        System.arraycopy(RESULT_FIELD, 0, out, RESULT_HEAD.length + idJson.length, RESULT_FIELD.length);
+        System.arraycopy(open, 0, out, out.length - open.length, open.length);
+        return out;
+    }
+
+    private DataBuffer write(DataBufferFactory factory, JsonNode id, Body body) {
+        return object(factory, g -> {
+            header(g, id);
+            body.write(g);
+        });
+    }
+
+    private DataBuffer object(DataBufferFactory factory, Body fields) {
+        DataBuffer buf = factory.allocateBuffer(REPLY_CAPACITY);
+        try (OutputStream out = buf.asOutputStream(); JsonGenerator g = om.createGenerator(out)) {
+            g.writeStartObject();
+            fields.write(g);
+            g.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            DataBufferUtils.release(buf);
+            throw e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+        }
+        return buf;
+    }
+
+    private static void header(JsonGenerator g, JsonNode id) throws IOException {
+        g.writeStringField("jsonrpc", "2.0");
+        g.writeFieldName("id");
+        if (id == null) g.writeNull();
+        else g.writeTree(id);
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.mcp.adapter.mcp.ws;
+
+import com.example.mcp.adapter.mcp.ws.JsonRpcCodec.Message;
+import com.example.mcp.core.executor.StreamingBody;
+import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Streamable HTTP transport: one JSON-RPC message per {@code POST /mcp/stream}. A tools/call from a
+ * client accepting {@code text/event-stream} is answered with SSE; anything else gets the plain JSON
+ * reply. The stream carries progress notifications (when the call has a {@code _meta.progressToken},
+ * counting upstream bytes) and the result, which for pass-through tools is written as the upstream
+ * sends it. Heartbeat comments go out between events while the call is quiet.
+ *
+ * <p>The call runs detached from the connection and its events are kept for {@code replay-ttl-ms}
+ * after it ends, so a client that lost the connection resumes with {@code GET /mcp/stream} and
+ * {@code Last-Event-ID} instead of calling the tool again. Event ids are written last, so an event
+ * cut off mid-way is sent again in full. A stream whose events outgrow {@code max-replay-bytes} stops
+ * being resumable and lets go of its log; connected clients still get the rest of it.
+ */
+@RestController
+@RequestMapping("/mcp/stream")
+public class McpStreamController {
+    private static final DataBufferFactory HEAP = DefaultDataBufferFactory.sharedInstance;
+    private static final byte[] DATA = ascii("data: ");
+    private static final byte[] CONTENT_OPEN = ascii("{\"content\":");
+    private static final byte[] STREAM_SUFFIX = ascii("}}");
+    private static final byte[] NULL = ascii("null");
+    // The partial event is dispatched under a type MCP clients do not listen to; its error follows
+    private static final byte[] ABORTED = ascii("\nevent: aborted\n\n");
+
+    /** Bytes of one event, or a piece of one that is written as the upstream streams. */
+    private record Frame(long seq, byte[] bytes, boolean closes) {}
+
+    private static final Frame PING = new Frame(-1, ascii(": ping\n\n"), true);
+
+    private final McpWebSocketHandler handler;
+    private final JsonRpcCodec codec;
+    private final ToolRegistry registry;
+    private final ToolExecutor executor;
+    private final Duration heartbeat;
+    private final Duration replayTtl;
+    private final int maxStreams;
+    private final long maxReplayBytes;
+    private final Map<String, ReplayLog> streams = new ConcurrentHashMap<>();
+
+    public McpStreamController(McpWebSocketHandler handler, ToolRegistry registry, ToolExecutor executor,
+                               @Value("${app.mcp.stream.heartbeat-ms:15000}") long heartbeatMs,
+                               @Value("${app.mcp.stream.replay-ttl-ms:60000}") long replayTtlMs,
+                               @Value("${app.mcp.stream.max-streams:1000}") int maxStreams,
+                               @Value("${app.mcp.stream.max-replay-bytes:1048576}") long maxReplayBytes) {
+        this.handler = handler;
+        this.codec = handler.codec();
+        this.registry = registry;
+        this.executor = executor;
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
+        this.replayTtl = Duration.ofMillis(replayTtlMs);
+        this.maxStreams = maxStreams;
+        this.maxReplayBytes = maxReplayBytes;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Flux<DataBuffer>>> post(ServerHttpRequest request, ServerHttpResponse response) {
+        DataBufferFactory factory = response.bufferFactory();
+        return DataBufferUtils.join(request.getBody())
+                .map(body -> {
+                    JsonRpcCodec.Frame frame;
+                    try {
+                        frame = codec.decode(body);
+                    } catch (Exception e) {
+                        frame = null;
+                    } finally {
+                        DataBufferUtils.release(body);
+                    }
+                    return handle(request, factory, frame);
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> handle(request, factory, null)));
+    }
+
+    /** Picks up a stream after the event named by {@code Last-Event-ID}. */
+    @GetMapping
+    public ResponseEntity<Flux<DataBuffer>> resume(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId,
+                                                   ServerHttpResponse response) {
+        if (lastEventId == null) return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).build();
+        int slash = lastEventId.lastIndexOf('/');
+        ReplayLog log = slash > 0 ? streams.get(lastEventId.substring(0, slash)) : null;
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return log == null ? ResponseEntity.notFound().build() : ResponseEntity.badRequest().build();
+        }
+        Flux<Frame> frames = log != null ? log.follow() : null;
+        if (frames == null) return ResponseEntity.notFound().build();
+        return sse(response.bufferFactory(), frames, after);
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> handle(ServerHttpRequest request, DataBufferFactory factory,
+                                                    JsonRpcCodec.Frame frame) {
+        if (frame == null) return json(HttpStatus.BAD_REQUEST, Mono.just(codec.error(factory, null, -32700, "Parse error")));
+        if (frame.batch()) {
+            return json(HttpStatus.BAD_REQUEST, Mono.just(codec.error(factory, null, -32600,
+                    "Batches are not supported on /mcp/stream; use /mcp/ws or /mcp/tools/call:batch")));
+        }
+        Message m = frame.messages().get(0);
+        if (m == Message.INVALID) return json(HttpStatus.BAD_REQUEST, Mono.just(codec.error(factory, null, -32600, "Invalid Request")));
+        if (m.id() == null) return ResponseEntity.accepted().build();
+        boolean sse = request.getHeaders().getAccept().stream().anyMatch(MediaType.TEXT_EVENT_STREAM::equalsTypeAndSubtype);
+        if (!sse || !"tools/call".equals(m.method())) return json(HttpStatus.OK, handler.dispatch(factory, m, false));
+        if (streams.size() >= maxStreams) {
+            return json(HttpStatus.OK, Mono.just(codec.error(factory, m.id(), -32001, "Too many open streams")));
+        }
+
+        String id = UUID.randomUUID().toString();
+        ReplayLog log = new ReplayLog(maxReplayBytes);
+        streams.put(id, log);
+        Flux<Frame> first = log.follow(); // before the call starts, so this client misses nothing
+        new Call(id, m).frames()
+                .doFinally(s -> Mono.delay(replayTtl).subscribe(t -> streams.remove(id)))
+                .subscribe(log::add, e -> log.complete(), log::complete);
+        return sse(factory, first, -1);
+    }
+
+    // Heartbeats only go out between events, never inside one that is still being written
+    private ResponseEntity<Flux<DataBuffer>> sse(DataBufferFactory factory, Flux<Frame> log, long after) {
+        Flux<DataBuffer> body = Flux.defer(() -> {
+            boolean[] open = {false};
+            return log.filter(f -> f.seq() > after)
+                    .publish(frames -> Flux.merge(frames,
+                            Flux.interval(heartbeat, heartbeat).map(t -> PING).takeUntilOther(frames.then())))
+                    .filter(f -> f != PING || !open[0])
+                    .doOnNext(f -> {
+                        if (f != PING) open[0] = !f.closes();
+                    })
+                    .map(f -> factory.wrap(f.bytes()));
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no")
+                .body(body);
+    }
+
+    private static ResponseEntity<Flux<DataBuffer>> json(HttpStatus status, Mono<DataBuffer> reply) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(reply.flux());
+    }
+
+    /**
+     * The frames of one stream so far, for clients that join or resume it. Past {@code maxBytes} the
+     * log is dropped and {@link #follow} returns null; followers already attached keep getting frames.
+     */
+    private static final class ReplayLog {
+        private final long maxBytes;
+        private final List<Frame> frames = new ArrayList<>();
+        private final List<Sinks.Many<Frame>> followers = new CopyOnWriteArrayList<>(); // a follower may leave from inside an emission
+        private long bytes;
+        private boolean dropped;
+        private boolean done;
+
+        ReplayLog(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized void add(Frame f) {
+            if (!dropped) {
+                bytes += f.bytes().length;
+                if (bytes > maxBytes) {
+                    dropped = true;
+                    frames.clear();
+                } else {
+                    frames.add(f);
+                }
+            }
+            for (Sinks.Many<Frame> s : followers) s.tryEmitNext(f);
+        }
+
+        synchronized void complete() {
+            done = true;
+            followers.forEach(Sinks.Many::tryEmitComplete);
+            followers.clear();
+        }
+
+        synchronized Flux<Frame> follow() {
+            if (dropped) return null;
+            Sinks.Many<Frame> s = Sinks.many().unicast().onBackpressureBuffer();
+            frames.forEach(s::tryEmitNext);
+            if (done) {
+                s.tryEmitComplete();
+            } else {
+                followers.add(s);
+            }
+            return s.asFlux().doFinally(t -> unfollow(s));
+        }
+
+        private synchronized void unfollow(Sinks.Many<Frame> s) {
+            followers.remove(s);
+        }
+    }
+
+    /** The events of one streamed tools/call; seq 0 only primes the client's last event id. */
+    private final class Call {
+        final String stream;
+        final Message m;
+        long seq;
+
+        Call(String stream, Message m) {
+            this.stream = stream;
+            this.m = m;
+        }
+
+        Flux<Frame> frames() {
+            Frame prime = new Frame(0, ascii("id: " + stream + "/0\n\n"), true);
+            Optional<ToolHandle> h = registry.get(m.tool() != null ? m.tool() : "");
+            if (h.isEmpty()) return Flux.just(prime, error(-32004, "Tool not found"));
+            return Flux.concat(Mono.just(prime), executor.executeReactive(h.get(), m.arguments())
+                    .flatMapMany(res -> {
+                        if (!Boolean.TRUE.equals(res.get("ok"))) {
+                            Map<?, ?> err = (Map<?, ?>) res.get("error");
+                            return Flux.just(error(McpWebSocketHandler.rpcCode(String.valueOf(err.get("code"))),
+                                    String.valueOf(err.get("message"))));
+                        }
+                        if (res.get("result") instanceof StreamingBody body) {
+                            Flux<DataBuffer> content = body.content().switchIfEmpty(Mono.fromSupplier(() -> HEAP.wrap(NULL)));
+                            return m.progressToken() != null ? withProgress(content) : streamed(content);
+                        }
+                        return Flux.just(event(codec.content(HEAP, m.id(), res.get("result"))));
+                    })
+                    .onErrorResume(e -> Flux.just(error(-32603, "Internal error"))));
+        }
+
+        // Upstream chunks go out as they arrive, inside one event
+        private Flux<Frame> streamed(Flux<DataBuffer> content) {
+            long n = ++seq;
+            return Flux.concat(
+                            Mono.fromSupplier(() -> new Frame(n, concat(DATA, codec.resultPrefix(m.id(), CONTENT_OPEN)), false)),
+                            content.map(buf -> new Frame(n, data(buf), false)),
+                            Mono.fromSupplier(() -> new Frame(n, concat(STREAM_SUFFIX, end(n)), true)))
+                    .onErrorResume(e -> Flux.just(new Frame(n, ABORTED, true), error(-32000, e.getMessage())));
+        }
+
+        // A progress notification per chunk, so the result is only sent once complete
+        private Flux<Frame> withProgress(Flux<DataBuffer> content) {
+            List<byte[]> parts = new ArrayList<>();
+            long[] received = {0};
+            return content
+                    .map(buf -> {
+                        byte[] part = data(buf);
+                        parts.add(part);
+                        received[0] += part.length;
+                        return event(codec.notification(HEAP, "notifications/progress", g -> {
+                            g.writeStartObject();
+                            g.writeFieldName("progressToken");
+                            g.writeTree(m.progressToken());
+                            g.writeNumberField("progress", received[0]);
+                            g.writeEndObject();
+                        }));
+                    })
+                    .concatWith(Mono.fromSupplier(() -> {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        out.writeBytes(DATA);
+                        out.writeBytes(codec.resultPrefix(m.id(), CONTENT_OPEN));
+                        parts.forEach(out::writeBytes);
+                        out.writeBytes(STREAM_SUFFIX);
+                        long n = ++seq;
+                        out.writeBytes(end(n));
+                        return new Frame(n, out.toByteArray(), true);
+                    }))
+                    .onErrorResume(e -> Flux.just(error(-32000, e.getMessage())));
+        }
+
+        private Frame error(int code, String message) {
+            return event(codec.error(HEAP, m.id(), code, message));
+        }
+
+        private Frame event(DataBuffer json) {
+            long n = ++seq;
+            byte[] body = new byte[json.readableByteCount()];
+            json.read(body);
+            DataBufferUtils.release(json);
+            return new Frame(n, concat(concat(DATA, body), end(n)), true);
+        }
+
+        private byte[] end(long n) {
+            return ascii("\nid: " + stream + "/" + n + "\n\n");
+        }
+    }
+
+    // Raw line breaks in JSON are whitespace, so the chunk stays one data line with them turned into spaces
+    private static byte[] data(DataBuffer buf) {
+        byte[] b = new byte[buf.readableByteCount()];
+        buf.read(b);
+        DataBufferUtils.release(buf);
+        for (int i = 0; i < b.length; i++) {
+            if (b[i] == '\n' || b[i] == '\r') b[i] = ' ';
+        }
+        return b;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -1,10 +1,22 @@
 package com.example.mcp.adapter.mcp.ws;
 
+import com.example.mcp.adapter.mcp.StreamingEnvelope;
+import com.example.mcp.adapter.mcp.ws.JsonRpcCodec.Message;
+import com.example.mcp.core.executor.BatchExecutor;
+import com.example.mcp.core.executor.StreamingBody;
 import com.example.mcp.core.executor.ToolExecutor;
+import com.example.mcp.core.executor.ToolLimiter;
+import com.example.mcp.core.executor.ToolPlan;
+import com.example.mcp.core.metrics.ToolMetrics;
 import com.example.mcp.core.registry.ToolRegistry;
 import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.shard.PeerForwarder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.socket.WebSocketHandler;
 import org.springframework.web.reactive.socket.WebSocketMessage;
@@ -12,98 +24,140 @@ import org.springframework.web.reactive.socket.WebSocketSession;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Optional;
 
 @Component
 public class McpWebSocketHandler implements WebSocketHandler {
+    private static final byte[] CONTENT_OPEN = "{\"content\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAM_SUFFIX = "}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NO_FIELD = new byte[0];
+    private static final String LIST_CHANGED = "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}";
+
     private final ToolRegistry registry;
     private final ToolExecutor executor;
-    private final ObjectMapper om = new ObjectMapper();
+    private final BatchExecutor batches;
+    private final ToolMetrics metrics;
+    private final JsonRpcCodec codec;
+    private final boolean listChanged;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final boolean ordered;
 
-    public McpWebSocketHandler(ToolRegistry registry, ToolExecutor executor) {
+    public McpWebSocketHandler(ToolRegistry registry, ToolExecutor executor, BatchExecutor batches, ToolMetrics metrics,
+                               ObjectMapper om,
+                               @Value("${app.mcp.list-changed-notifications:true}") boolean listChanged,
+                               @Value("${app.mcp.ws.max-in-flight:32}") int maxInFlight,
+                               @Value("${app.mcp.ws.max-queued:64}") int maxQueued,
+                               @Value("${app.mcp.ws.ordered:false}") boolean ordered) {
         this.registry = registry;
         this.executor = executor;
+        this.batches = batches;
+        this.metrics = metrics;
+        this.codec = new JsonRpcCodec(om);
+        this.listChanged = listChanged;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.ordered = ordered;
     }
 
     @Override
     public Mono<Void> handle(WebSocketSession session) {
-        Flux<WebSocketMessage> output = session.receive()
-                .map(WebSocketMessage::getPayloadAsText)
-                .flatMap(this::route)
-                .map(s -> session.textMessage(s));
+        boolean peer = session.getHandshakeInfo().getHeaders().containsKey(PeerForwarder.PEER_HEADER);
+        Flux<WebSocketMessage> output = new WsSession(this, session, peer, maxInFlight, maxQueued, ordered).replies();
+        if (listChanged && !peer) {
+            // Best effort: a session that is not draining its socket misses the push, not the next list
+            output = output.mergeWith(registry.changes()
+                    .map(c -> session.textMessage(LIST_CHANGED))
+                    .takeUntilOther(session.closeStatus()));
+        }
         return session.send(output);
     }
 
-    private Mono<String> route(String text) {
-        try {
-            JsonNode node = om.readTree(text);
-            String method = node.path("method").asText();
-            JsonNode id = node.path("id");
-            return switch (method) {
-                case "initialize" -> handleInitialize(id);
-                case "tools/list" -> handleToolsList(id);
-                case "tools/call" -> handleToolsCall(id, node.path("params"));
-                default -> Mono.just(om.writeValueAsString(JsonRpcModels.Response.err(id, -32601, "Method not found")));
-            };
-        } catch (Exception e) {
-            return Mono.just("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32700,\"message\":\"Parse error\"}}");
-        }
+    JsonRpcCodec codec() {
+        return codec;
     }
 
-    private Mono<String> handleInitialize(JsonNode id) throws Exception {
+    BatchExecutor batches() {
+        return batches;
+    }
+
+    /**
+     * Reply to one request; admission, ordering and cancellation are up to {@link WsSession}.
+     * {@code fromPeer} marks calls another node forwarded here, which are not forwarded again.
+     */
+    Mono<DataBuffer> dispatch(DataBufferFactory factory, Message m, boolean fromPeer) {
+        if (m.method() == null) return Mono.just(codec.error(factory, m.id(), -32600, "Invalid Request"));
+        return switch (m.method()) {
+            case "initialize" -> Mono.fromSupplier(() -> handleInitialize(factory, m.id()));
+            case "tools/list" -> Mono.fromSupplier(() -> handleToolsList(factory, m));
+            case "tools/call" -> handleToolsCall(factory, m, fromPeer);
+            default -> Mono.just(codec.error(factory, m.id(), -32601, "Method not found"));
+        };
+    }
+
+    private DataBuffer handleInitialize(DataBufferFactory factory, JsonNode id) {
         Map<String, Object> serverInfo = Map.of(
                 "name", "mcp-lite-java",
                 "version", "0.1.0"
         );
-        Map<String, Object> capabilities = Map.of("tools", true);
-        JsonNode result = om.valueToTree(Map.of("serverInfo", serverInfo, "capabilities", capabilities));
-        return Mono.just(om.writeValueAsString(JsonRpcModels.Response.ok(id, result)));
+        Map<String, Object> capabilities = Map.of("tools", Map.of("listChanged", listChanged));
+        return codec.result(factory, id, g -> g.writeObject(Map.of("serverInfo", serverInfo, "capabilities", capabilities)));
     }
 
-    private Mono<String> handleToolsList(JsonNode id) throws Exception {
-        JsonNode result = om.valueToTree(Map.of("tools", registry.list()));
-        return Mono.just(om.writeValueAsString(JsonRpcModels.Response.ok(id, result)));
+    // The page is already serialized; only the envelope around it is built per request
+    private DataBuffer handleToolsList(DataBufferFactory factory, Message m) {
+        byte[] page;
+        try {
+            page = registry.catalog().page(m.cursor());
+        } catch (IllegalArgumentException e) {
+            return codec.error(factory, m.id(), -32602, e.getMessage());
+        }
+        byte[] prefix = codec.resultPrefix(m.id(), NO_FIELD);
+        return factory.allocateBuffer(prefix.length + page.length + 1)
+                .write(prefix).write(page).write((byte) '}');
     }
 
-    private Mono<String> handleToolsCall(JsonNode id, JsonNode params) {
-        String tool = params.path("tool").asText();
-        JsonNode arguments = params.path("arguments");
-        Optional<ToolHandle> h = registry.get(tool);
-        if (h.isEmpty()) {
-            try {
-                return Mono.just(om.writeValueAsString(JsonRpcModels.Response.err(id, -32004, "Tool not found")));
-            } catch (Exception e) {
-                return Mono.just("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32603,\"message\":\"Internal error\"}}");
-            }
+    private Mono<DataBuffer> handleToolsCall(DataBufferFactory factory, Message m, boolean fromPeer) {
+        Optional<ToolHandle> h = registry.get(m.tool() != null ? m.tool() : "");
+        // Nodes that disagree on ownership answer not found rather than pass the call around
+        if (h.isEmpty() || fromPeer && h.get().plan() == ToolPlan.PEER) {
+            return Mono.just(codec.error(factory, m.id(), -32004, "Tool not found"));
         }
-        return executor.executeReactive(h.get(), arguments)
+        return executor.executeReactive(h.get(), m.arguments())
                 .flatMap(res -> {
                     if (Boolean.TRUE.equals(res.get("ok"))) {
-                        JsonNode result = om.valueToTree(Map.of("content", res.get("result")));
-                        try {
-                            return Mono.just(om.writeValueAsString(JsonRpcModels.Response.ok(id, result)));
-                        } catch (Exception e) {
-                            return Mono.error(e);
+                        if (res.get("result") instanceof StreamingBody body) {
+                            return streamed(factory, m.id(), body);
                         }
+                        long start = System.nanoTime();
+                        DataBuffer reply = codec.content(factory, m.id(), res.get("result"));
+                        metrics.tool(m.tool()).record(ToolMetrics.Phase.SERIALIZE, System.nanoTime() - start);
+                        return Mono.just(reply);
                     } else {
-                        Map<String, Object> err = (Map<String, Object>) res.get("error");
-                        int code = -32000;
-                        String msg = String.valueOf(err.get("message"));
-                        try {
-                            return Mono.just(om.writeValueAsString(JsonRpcModels.Response.err(id, code, msg)));
-                        } catch (Exception e) {
-                            return Mono.error(e);
-                        }
+                        Map<?, ?> err = (Map<?, ?>) res.get("error");
+                        int code = rpcCode(String.valueOf(err.get("code")));
+                        return Mono.just(codec.error(factory, m.id(), code, String.valueOf(err.get("message"))));
                     }
                 })
-                .onErrorResume(e -> {
-                    try {
-                        return Mono.just(om.writeValueAsString(JsonRpcModels.Response.err(id, -32603, "Internal error")));
-                    } catch (Exception ex) {
-                        return Mono.just("{\"jsonrpc\":\"2.0\",\"id\":null,\"error\":{\"code\":-32603,\"message\":\"Internal error\"}}");
-                    }
-                });
+                .onErrorResume(e -> Mono.just(codec.error(factory, m.id(), -32603, "Internal error")));
     }
-}
 
+    // A text frame is one message, so the raw upstream bytes are joined (as a composite, not copied) behind the envelope
+    private Mono<DataBuffer> streamed(DataBufferFactory factory, JsonNode id, StreamingBody body) {
+        return DataBufferUtils.join(StreamingEnvelope.wrap(factory, codec.resultPrefix(id, CONTENT_OPEN), body.content(), STREAM_SUFFIX));
+    }
+
+    // Executor error codes that have a JSON-RPC counterpart; the rest are server errors
+    static int rpcCode(String code) {
+        return switch (code) {
+            case "INVALID_PARAMS" -> -32602;
+            case ToolLimiter.OVERLOADED -> -32001;
+            case ToolLimiter.RATE_LIMITED -> -32002;
+            case ToolLimiter.QUEUE_TIMEOUT -> -32003;
+            case "CIRCUIT_OPEN" -> -32005;
+            default -> -32000;
+        };
+    }
+}
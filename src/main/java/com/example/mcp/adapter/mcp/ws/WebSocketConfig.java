@@ -1,8 +1,13 @@
 package com.example.mcp.adapter.mcp.ws;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.web.reactive.config.EnableWebFlux;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 import org.springframework.web.reactive.socket.server.support.WebSocketHandlerAdapter;
 import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
 
@@ -10,7 +15,19 @@ import java.util.Map;
 
 @Configuration
 @EnableWebFlux
-public class WebSocketConfig {
+public class WebSocketConfig implements WebFluxConfigurer {
+    private final ObjectMapper om;
+
+    public WebSocketConfig(ObjectMapper om) {
+        this.om = om;
+    }
+
+    // @EnableWebFlux turns off Boot's codec setup; keep the HTTP codecs on the shared mapper
+    @Override
+    public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(om));
+        configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(om));
+    }
 
     @Bean
     public SimpleUrlHandlerMapping webSocketMapping(McpWebSocketHandler handler) {
@@ -20,4 +37,3 @@ public class WebSocketConfig {
     @Bean
     public WebSocketHandlerAdapter handlerAdapter() { return new WebSocketHandlerAdapter(); }
 }
-
@@ -0,0 +1,374 @@
+package com.example.mcp.adapter.mcp.ws;
+
+import com.example.mcp.adapter.mcp.ws.JsonRpcCodec.Message;
+import com.example.mcp.core.executor.BatchExecutor;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * One /mcp/ws connection. At most {@code maxInFlight} requests run at once and up to {@code maxQueued}
+ * more wait for a slot; replies the client has not taken yet count against the same budget. When it is
+ * used up the socket is not read any further, so a client that sends faster than its calls complete (or
+ * stops reading) is pushed back through TCP instead of being buffered here, and holds no more than
+ * {@code maxInFlight} of the executor's shared permits. Replies go out as calls complete, or in request
+ * order when {@code ordered}. A batch is admitted whole and its calls take slots one by one; it is
+ * subject to the batch limits of {@link BatchExecutor}, and entries still open at its deadline are
+ * cancelled and answered with error -32006. {@code notifications/cancelled} drops a waiting call or disposes a running one, which cancels its
+ * upstream request; the cancelled call gets no reply, a cancelled batch entry gets error -32800.
+ */
+final class WsSession extends BaseSubscriber<WebSocketMessage> {
+    private static final Object NO_REPLY = new Object();
+
+    private final McpWebSocketHandler handler;
+    private final WebSocketSession session;
+    private final boolean peer;
+    private final int maxInFlight;
+    private final int budget;
+    private final boolean ordered;
+
+    // All below guarded by this
+    private final ArrayDeque<Call> waiting = new ArrayDeque<>();
+    private final Map<String, Call> calls = new HashMap<>();
+    private final ArrayDeque<DataBuffer> outbox = new ArrayDeque<>();
+    private final Map<Long, Object> early = new HashMap<>(); // ordered replies ahead of their turn
+    private FluxSink<WebSocketMessage> sink;
+    private long demand;
+    private int running;
+    private long nextSeq;
+    private long nextOut;
+    private boolean paused;
+    private boolean draining;
+    private boolean closed;
+
+    WsSession(McpWebSocketHandler handler, WebSocketSession session, boolean peer, int maxInFlight, int maxQueued,
+              boolean ordered) {
+        this.handler = handler;
+        this.session = session;
+        this.peer = peer;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.budget = this.maxInFlight + Math.max(0, maxQueued);
+        this.ordered = ordered;
+    }
+
+    Flux<WebSocketMessage> replies() {
+        return Flux.create(s -> {
+            synchronized (this) {
+                sink = s;
+            }
+            s.onRequest(this::onDemand);
+            s.onDispose(this::close);
+            session.receive().subscribe(this);
+        });
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription s) {
+        s.request(1);
+    }
+
+    // The frame is released once this returns, so it is decoded here
+    @Override
+    protected void hookOnNext(WebSocketMessage message) {
+        JsonRpcCodec.Frame frame;
+        try {
+            frame = handler.codec().decode(message.getPayload());
+        } catch (Exception e) {
+            frame = null;
+        }
+        boolean read;
+        synchronized (this) {
+            if (closed) return;
+            admit(frame);
+            read = !full();
+            paused = !read;
+        }
+        if (read) request(1);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        sink.complete();
+    }
+
+    @Override
+    protected void hookOnError(Throwable e) {
+        sink.complete();
+    }
+
+    private void admit(JsonRpcCodec.Frame frame) {
+        if (frame == null) {
+            reply(nextSeq++, error(null, -32700, "Parse error"));
+        } else if (!frame.batch()) {
+            single(frame.messages().get(0));
+        } else if (frame.messages().isEmpty()) {
+            reply(nextSeq++, error(null, -32600, "Invalid Request"));
+        } else if (frame.messages().size() > handler.batches().maxCalls()) {
+            reply(nextSeq++, error(null, -32600, "At most " + handler.batches().maxCalls() + " calls per batch"));
+        } else {
+            batch(frame.messages());
+        }
+    }
+
+    private void single(Message m) {
+        if (m == Message.INVALID) {
+            reply(nextSeq++, error(null, -32600, "Invalid Request"));
+        } else if (m.id() == null) {
+            notification(m);
+        } else {
+            long seq = nextSeq++;
+            submit(new Call(m, buf -> reply(seq, buf)));
+        }
+    }
+
+    private void batch(List<Message> messages) {
+        long seq = nextSeq++;
+        List<Call> batchCalls = new ArrayList<>();
+        Batch batch = new Batch(seq, messages.size());
+        for (Message m : messages) {
+            if (m == Message.INVALID) {
+                batch.add(error(null, -32600, "Invalid Request"));
+            } else if (m.id() == null) {
+                notification(m);
+            } else {
+                int slot = batch.expect();
+                batchCalls.add(new Call(m, buf -> batch.set(slot, buf != null ? buf
+                        : batch.expired ? error(m.id(), -32006, "Batch deadline exceeded")
+                        : error(m.id(), -32800, "Request cancelled"))));
+            }
+        }
+        batch.sealed = true;
+        for (Call c : batchCalls) submit(c);
+        batch.complete();
+        if (batch.pending > 0) {
+            batch.timer = Mono.delay(handler.batches().deadline(null)).subscribe(t -> expire(batch, batchCalls));
+        }
+    }
+
+    private void expire(Batch batch, List<Call> batchCalls) {
+        boolean read;
+        synchronized (this) {
+            if (closed) return;
+            batch.expired = true;
+            for (Call c : batchCalls) cancel(c);
+            read = resume();
+        }
+        if (read) request(1);
+    }
+
+    private void notification(Message m) {
+        if ("notifications/cancelled".equals(m.method()) && m.requestId() != null) cancel(m.requestId().toString());
+    }
+
+    private void submit(Call call) {
+        calls.put(call.key, call);
+        waiting.add(call);
+        drain();
+    }
+
+    private void drain() {
+        if (draining) return;
+        draining = true;
+        try {
+            while (running < maxInFlight && !waiting.isEmpty() && !closed) start(waiting.poll());
+        } finally {
+            draining = false;
+        }
+    }
+
+    private void start(Call call) {
+        running++;
+        call.started = true;
+        Disposable task = handler.dispatch(session.bufferFactory(), call.request, peer)
+                .switchIfEmpty(Mono.fromSupplier(() -> error(call.request.id(), -32603, "Internal error")))
+                .onErrorResume(e -> Mono.just(error(call.request.id(), -32603, "Internal error")))
+                .subscribe(buf -> finish(call, buf));
+        if (!call.done) call.task = task;
+    }
+
+    private void finish(Call call, DataBuffer reply) {
+        boolean read;
+        synchronized (this) {
+            if (call.done || closed) {
+                DataBufferUtils.release(reply);
+                return;
+            }
+            settle(call);
+            call.onReply.accept(reply);
+            drain();
+            read = resume();
+        }
+        if (read) request(1);
+    }
+
+    private void cancel(String key) {
+        Call call = calls.get(key);
+        if (call != null) cancel(call);
+    }
+
+    private void cancel(Call call) {
+        if (call.done) return;
+        if (!call.started) waiting.remove(call);
+        settle(call);
+        if (call.task != null) call.task.dispose();
+        call.onReply.accept(null);
+        drain();
+    }
+
+    private void settle(Call call) {
+        call.done = true;
+        if (call.started) running--;
+        calls.remove(call.key, call);
+    }
+
+    // null = the request gets no reply, but its turn is still taken in ordered mode
+    private void reply(long seq, DataBuffer buf) {
+        if (!ordered) {
+            if (buf != null) send(buf);
+            return;
+        }
+        early.put(seq, buf != null ? buf : NO_REPLY);
+        for (Object next; (next = early.remove(nextOut)) != null; nextOut++) {
+            if (next != NO_REPLY) send((DataBuffer) next);
+        }
+    }
+
+    private void send(DataBuffer buf) {
+        if (demand > 0 && outbox.isEmpty()) {
+            demand--;
+            sink.next(new WebSocketMessage(WebSocketMessage.Type.TEXT, buf));
+        } else {
+            outbox.add(buf);
+        }
+    }
+
+    private void onDemand(long n) {
+        boolean read;
+        synchronized (this) {
+            if (closed) return;
+            demand = Operators.addCap(demand, n);
+            while (demand > 0 && !outbox.isEmpty()) {
+                demand--;
+                sink.next(new WebSocketMessage(WebSocketMessage.Type.TEXT, outbox.poll()));
+            }
+            read = resume();
+        }
+        if (read) request(1);
+    }
+
+    private DataBuffer error(JsonNode id, int code, String message) {
+        return handler.codec().error(session.bufferFactory(), id, code, message);
+    }
+
+    private boolean full() {
+        return running + waiting.size() + outbox.size() + early.size() >= budget;
+    }
+
+    private boolean resume() {
+        if (!paused || closed || full()) return false;
+        paused = false;
+        return true;
+    }
+
+    private void close() {
+        List<Disposable> tasks = new ArrayList<>();
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            calls.values().forEach(c -> {
+                if (c.task != null) tasks.add(c.task);
+            });
+            calls.clear();
+            waiting.clear();
+            outbox.forEach(DataBufferUtils::release);
+            outbox.clear();
+            early.values().forEach(o -> {
+                if (o instanceof DataBuffer b) DataBufferUtils.release(b);
+            });
+            early.clear();
+        }
+        tasks.forEach(Disposable::dispose);
+        dispose();
+    }
+
+    private static final class Call {
+        final Message request;
+        final String key;
+        final Consumer<DataBuffer> onReply; // given null when cancelled
+        Disposable task;
+        boolean started;
+        boolean done;
+
+        Call(Message request, Consumer<DataBuffer> onReply) {
+            this.request = request;
+            this.key = request.id().toString();
+            this.onReply = onReply;
+        }
+    }
+
+    // Collects the replies of one batch and sends them as a single array, in request order
+    private final class Batch {
+        final long seq;
+        final DataBuffer[] parts;
+        int size;
+        int pending;
+        boolean sealed;
+        boolean expired;
+        Disposable timer;
+
+        Batch(long seq, int capacity) {
+            this.seq = seq;
+            this.parts = new DataBuffer[capacity];
+        }
+
+        void add(DataBuffer buf) {
+            parts[size++] = buf;
+        }
+
+        int expect() {
+            pending++;
+            return size++;
+        }
+
+        void set(int slot, DataBuffer buf) {
+            parts[slot] = buf;
+            pending--;
+            complete();
+        }
+
+        void complete() {
+            if (!sealed || pending > 0) return;
+            sealed = false; // only once
+            if (timer != null) timer.dispose();
+            if (size == 0) {
+                reply(seq, null); // notifications only
+                return;
+            }
+            int len = size + 1;
+            for (int i = 0; i < size; i++) len += parts[i].readableByteCount();
+            DataBuffer out = session.bufferFactory().allocateBuffer(len).write((byte) '[');
+            for (int i = 0; i < size; i++) {
+                if (i > 0) out.write((byte) ',');
+                out.write(parts[i]);
+                DataBufferUtils.release(parts[i]);
+            }
+            reply(seq, out.write((byte) ']'));
+        }
+    }
+}
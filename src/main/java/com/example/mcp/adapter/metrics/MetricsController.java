@@ -0,0 +1,22 @@
+package com.example.mcp.adapter.metrics;
+
+import com.example.mcp.core.metrics.ToolMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/** Prometheus scrape endpoint; the same data as JSON is at {@code /admin/metrics}. */
+@RestController
+public class MetricsController {
+    private static final String PROMETHEUS_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ToolMetrics metrics;
+
+    public MetricsController(ToolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GetMapping(path = "/metrics", produces = PROMETHEUS_TEXT)
+    public String scrape() {
+        return metrics.prometheus();
+    }
+}
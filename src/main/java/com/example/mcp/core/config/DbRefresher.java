@@ -1,66 +1,213 @@
 package com.example.mcp.core.config;
 
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.PlanWarmer;
+import com.example.mcp.core.executor.ToolPlan;
 import com.example.mcp.core.registry.ToolConfig;
 import com.example.mcp.core.registry.ToolHandle;
 import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.core.shard.ShardRing;
+import com.example.mcp.infra.db.SnapshotStore;
 import com.example.mcp.infra.db.ToolRepository;
 import com.example.mcp.infra.db.ToolRow;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.http.UpstreamKey;
+import com.example.mcp.infra.notify.ChangeNotifier;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Component
 public class DbRefresher {
+    private static final Logger log = LoggerFactory.getLogger(DbRefresher.class);
+
+    private record Published(String tool, ToolRow row) {}
+
     private final ToolRepository repo;
+    private final SnapshotStore snapshots;
     private final ToolRegistry registry;
-    private final ObjectMapper om = new ObjectMapper();
-    private volatile Instant lastSeen = Instant.EPOCH;
+    private final PlanCompiler compiler;
+    private final PlanWarmer warmer;
+    private final UpstreamClientManager clients;
+    private final ChangeNotifier notifier;
+    private final ShardRing ring;
+    private final long safetyIntervalMs;
+    private final ObjectMapper om;
+    // Row name -> tool published for it and the row it came from, to apply disables and renames
+    private final Map<String, Published> byRow = new HashMap<>();
+    private volatile long lastVersion = -1;
+    private volatile long lastPollMs;
+    private volatile boolean reconciled; // schema created and the snapshot checked against every row
+    private volatile boolean dbDown;
+    private boolean dirty; // applied rows not yet in the local snapshot
 
-    public DbRefresher(ToolRepository repo, ToolRegistry registry,
-                       @Value("${app.db-refresh-interval-ms:1000}") long interval) {
+    public DbRefresher(ToolRepository repo, SnapshotStore snapshots, ToolRegistry registry, PlanCompiler compiler,
+                       PlanWarmer warmer, UpstreamClientManager clients, ChangeNotifier notifier, ShardRing ring, ObjectMapper om,
+                       @Value("${app.db-refresh-interval-ms:1000}") long interval,
+                       @Value("${app.db-safety-refresh-interval-ms:30000}") long safetyIntervalMs) {
         this.repo = repo;
+        this.snapshots = snapshots;
         this.registry = registry;
+        this.compiler = compiler;
+        this.warmer = warmer;
+        this.clients = clients;
+        this.notifier = notifier;
+        this.ring = ring;
+        this.om = om;
+        this.safetyIntervalMs = safetyIntervalMs;
+        notifier.subscribe(version -> {
+            if (version > lastVersion) doRefresh();
+        });
     }
 
-    public void refreshNow() { doRefresh(true); }
+    /**
+     * Publishes the local snapshot before the server takes traffic; the scheduled refresh then
+     * catches up with rows written since its version.
+     */
+    @PostConstruct
+    public synchronized void loadSnapshot() {
+        SnapshotStore.Snapshot s = snapshots.load();
+        if (s == null) return;
+        lastVersion = s.version();
+        apply(s.rows());
+        log.info("Serving {} tools from the local snapshot at version {}", byRow.size(), s.version());
+    }
 
+    /** Applies local admin writes immediately and tells the other instances about them. */
+    public void refreshNow() {
+        doRefresh();
+        notifier.publish(lastVersion);
+    }
+
+    // With a notifier reaching the peers, polling is only a safety net for lost notifications
     @Scheduled(fixedDelayString = "${app.db-refresh-interval-ms:1000}")
-    public void refresh() { doRefresh(false); }
+    public void refresh() {
+        if (!notifier.reachesPeers() || System.currentTimeMillis() - lastPollMs >= safetyIntervalMs) {
+            try {
+                doRefresh();
+                if (dbDown) log.info("Tool database reachable again");
+                dbDown = false;
+            } catch (DataAccessException e) {
+                // Keep serving what is published; log the outage once, not on every poll
+                if (!dbDown) log.warn("Tool refresh failed, serving version {}: {}", lastVersion, e.getMostSpecificCause().getMessage());
+                dbDown = true;
+            }
+        }
+        persist();
+    }
 
-    private void doRefresh(boolean force) {
-        List<ToolRow> changed = force ? repo.findAllEnabled() : repo.findChangedSince(lastSeen);
-        if (changed.isEmpty() && !force) return;
+    public long lastVersion() { return lastVersion; }
 
-        // Load all enabled to rebuild full snapshot（简单做法，便于一致性）
-        List<ToolRow> all = repo.findAllEnabled();
-        Map<String, ToolHandle> snap = new HashMap<>();
-        for (ToolRow r : all) {
-            try {
-                JsonNode node = om.readTree(r.configJson());
-                ToolConfig cfg = new ToolConfig(
-                        node.path("name").asText(),
-                        node.path("description").asText(null),
-                        node.path("type").asText(),
-                        node.path("inputSchema"),
-                        node.path("http"),
-                        node.path("feign")
-                );
-                snap.put(cfg.name(), new ToolHandle(cfg));
-                if (r.updatedAt().isAfter(lastSeen)) {
-                    lastSeen = r.updatedAt();
+    /**
+     * Applies only rows whose version moved past the last applied one onto a copy of the current
+     * snapshot; untouched tools keep their parsed handles. In sharded mode only the tools this node
+     * owns are compiled; the others are published with their listing and forwarded on call.
+     * Freshly compiled plans are warmed up before the snapshot is published.
+     */
+    private synchronized void doRefresh() {
+        lastPollMs = System.currentTimeMillis();
+        // Both steps are retried on the next refresh until they succeed, the schema script is idempotent
+        if (!reconciled) {
+            repo.createSchema();
+            reconcile();
+            reconciled = true;
+            return;
+        }
+        List<ToolRow> changed = repo.findChangedSince(lastVersion);
+        if (changed.isEmpty()) return;
+        apply(changed);
+        dirty = true;
+    }
+
+    // First pass against the database: read every row, since the snapshot may come from another database
+    private void reconcile() {
+        List<ToolRow> rows = new ArrayList<>(repo.findChangedSince(-1));
+        Set<String> names = new HashSet<>();
+        for (ToolRow r : rows) names.add(r.name());
+        for (Map.Entry<String, Published> e : byRow.entrySet()) {
+            if (!names.contains(e.getKey())) rows.add(new ToolRow(null, e.getKey(), false, null, -1, null));
+        }
+        lastVersion = -1;
+        apply(rows);
+        dirty = true;
+    }
+
+    private void apply(List<ToolRow> changed) {
+        Map<String, ToolHandle> snap = new HashMap<>(registry.snapshot());
+        List<ToolHandle> compiled = new ArrayList<>();
+        for (ToolRow r : changed) {
+            if (r.enabled()) {
+                try {
+                    ToolConfig cfg = parse(r.configJson());
+                    boolean owned = ring.owns(cfg.name());
+                    ToolConfig published = owned ? cfg : cfg.listing();
+                    // Unchanged tools keep their handle (and its cache); others get a freshly compiled plan
+                    ToolHandle old = registry.get(cfg.name()).orElse(null);
+                    ToolHandle h = old != null && old.config().equals(published)
+                            ? old
+                            : new ToolHandle(published, owned ? compiler.compile(cfg) : ToolPlan.PEER);
+                    // Only replaced once the new version parsed and compiled
+                    unpublish(snap, r.name());
+                    snap.put(cfg.name(), h);
+                    if (h != old && owned) compiled.add(h);
+                    byRow.put(r.name(), new Published(cfg.name(), r));
+                } catch (Exception e) {
+                    // Keep the previously published version; the row is only read again once it changes
+                    log.warn("Skipping tool row {} at version {}: {}", r.name(), r.version(), e.getMessage());
                 }
-            } catch (Exception e) {
-                // skip bad row; keep old snapshot
+            } else {
+                unpublish(snap, r.name());
             }
+            lastVersion = Math.max(lastVersion, r.version());
+        }
+        // A tool changed twice in one pass is only warmed in its published form
+        compiled.removeIf(h -> snap.get(h.config().name()) != h);
+        warmer.warm(compiled);
+        registry.replace(snap, lastVersion);
+        // Release pools of upstreams no tool points at anymore
+        Set<UpstreamKey> live = new HashSet<>();
+        for (ToolHandle h : snap.values()) {
+            if (h.plan().upstream() != null) live.add(h.plan().upstream().key());
         }
-        registry.replace(snap);
+        clients.retain(live);
+    }
+
+    private void unpublish(Map<String, ToolHandle> snap, String rowName) {
+        Published p = byRow.remove(rowName);
+        if (p != null) snap.remove(p.tool());
     }
-}
 
+    // Off the admin and notifier paths: a burst of writes costs one file write per poll
+    private void persist() {
+        long version;
+        List<ToolRow> rows = new ArrayList<>();
+        synchronized (this) {
+            if (!dirty) return;
+            dirty = false;
+            version = lastVersion;
+            for (Published p : byRow.values()) rows.add(p.row());
+        }
+        try {
+            snapshots.save(version, rows);
+        } catch (IOException e) {
+            log.warn("Cannot write the local tool snapshot: {}", e.getMessage());
+        }
+    }
+
+    private ToolConfig parse(String json) throws Exception {
+        return ToolConfig.of(om.readTree(json));
+    }
+}
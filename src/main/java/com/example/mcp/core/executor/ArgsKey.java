@@ -0,0 +1,62 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Canonical string form of call arguments (object keys sorted recursively), so that argument
+ * maps that differ only in key order produce the same cache / coalescing key.
+ */
+public final class ArgsKey {
+    private ArgsKey() {}
+
+    public static String of(JsonNode args) {
+        StringBuilder sb = new StringBuilder(64);
+        append(sb, args);
+        return sb.toString();
+    }
+
+    /** Key built only from the given argument paths, e.g. {@code [["city"], ["opts", "unit"]]}. */
+    public static String of(JsonNode args, String[][] fields) {
+        if (fields == null) return of(args);
+        StringBuilder sb = new StringBuilder(64);
+        for (String[] path : fields) {
+            JsonNode n = args;
+            for (String p : path) n = n == null ? null : n.get(p);
+            append(sb, n);
+            sb.append('\u0001');
+        }
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, JsonNode n) {
+        if (n == null || n.isMissingNode()) {
+            sb.append('~');
+        } else if (n.isObject()) {
+            List<String> names = new ArrayList<>(n.size());
+            Iterator<String> it = n.fieldNames();
+            while (it.hasNext()) names.add(it.next());
+            Collections.sort(names);
+            sb.append('{');
+            for (String name : names) {
+                sb.append(name.length()).append(':').append(name);
+                append(sb, n.get(name));
+                sb.append(',');
+            }
+            sb.append('}');
+        } else if (n.isArray()) {
+            sb.append('[');
+            for (JsonNode e : n) {
+                append(sb, e);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            sb.append(n.toString());
+        }
+    }
+}
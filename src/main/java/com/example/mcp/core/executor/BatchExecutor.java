@@ -0,0 +1,122 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs independent tool calls side by side: at most {@code parallelism} at once, results emitted as
+ * each call completes. Calls still running at the deadline are cancelled and reported as
+ * {@link #DEADLINE_EXCEEDED}, so a slow call costs its own result, not the batch.
+ */
+@Component
+public class BatchExecutor {
+    public static final String DEADLINE_EXCEEDED = "DEADLINE_EXCEEDED";
+
+    public record Call(String tool, JsonNode arguments) {}
+
+    /** {@code response} has the shape of a single call's; pass-through bodies arrive as raw JSON. */
+    public record Result(int index, Map<String, Object> response) {}
+
+    private final ToolRegistry registry;
+    private final ToolExecutor executor;
+    private final int maxCalls;
+    private final int maxParallelism;
+    private final long deadlineMs;
+
+    public BatchExecutor(ToolRegistry registry, ToolExecutor executor,
+                         @Value("${app.mcp.batch.max-calls:100}") int maxCalls,
+                         @Value("${app.mcp.batch.max-parallelism:8}") int maxParallelism,
+                         @Value("${app.mcp.batch.deadline-ms:10000}") long deadlineMs) {
+        this.registry = registry;
+        this.executor = executor;
+        this.maxCalls = maxCalls;
+        this.maxParallelism = Math.max(1, maxParallelism);
+        this.deadlineMs = deadlineMs;
+    }
+
+    public int maxCalls() {
+        return maxCalls;
+    }
+
+    /** The configured deadline, or the requested one when it is shorter. */
+    public Duration deadline(Long requestedMs) {
+        return Duration.ofMillis(requestedMs != null && requestedMs > 0 ? Math.min(requestedMs, deadlineMs) : deadlineMs);
+    }
+
+    /**
+     * One result per call, in completion order. {@code parallelism} and {@code deadlineMs} may only
+     * tighten the configured limits; null keeps them.
+     */
+    public Flux<Result> execute(List<Call> calls, Integer parallelism, Long deadlineMs) {
+        if (calls == null || calls.isEmpty()) throw new IllegalArgumentException("No calls");
+        if (calls.size() > maxCalls) throw new IllegalArgumentException("At most " + maxCalls + " calls per batch");
+        int n = calls.size();
+        int concurrency = parallelism != null && parallelism > 0 ? Math.min(parallelism, maxParallelism) : maxParallelism;
+        Duration deadline = deadline(deadlineMs);
+        AtomicIntegerArray done = new AtomicIntegerArray(n);
+        // Marked past the deadline gate: a result that loses the race with it is reported as timed out
+        Flux<Result> completed = Flux.range(0, n)
+                .flatMap(i -> call(calls.get(i)).map(res -> new Result(i, res)), concurrency)
+                .takeUntilOther(Mono.delay(deadline))
+                .doOnNext(r -> done.set(r.index(), 1));
+        return completed.concatWith(Flux.defer(() -> Flux.range(0, n)
+                .filter(i -> done.get(i) == 0)
+                .map(i -> new Result(i, error(DEADLINE_EXCEEDED, "Batch deadline of " + deadline.toMillis() + " ms exceeded")))));
+    }
+
+    private Mono<Map<String, Object>> call(Call call) {
+        Optional<ToolHandle> h = registry.get(call.tool() != null ? call.tool() : "");
+        if (h.isEmpty()) return Mono.just(error("NOT_FOUND", "Tool not found: " + call.tool()));
+        // A body failing mid-read costs this call its result, not the rest of the batch
+        return executor.executeReactive(h.get(), call.arguments())
+                .flatMap(BatchExecutor::materialize)
+                .onErrorResume(e -> Mono.just(e instanceof DataBufferLimitException
+                        ? error("RESPONSE_TOO_LARGE", e.getMessage())
+                        : error("INTERNAL", e.getMessage())));
+    }
+
+    // A pass-through body is read before the result is emitted, so a result dropped at the deadline holds no connection
+    private static Mono<Map<String, Object>> materialize(Map<String, Object> res) {
+        if (!(res.get("result") instanceof StreamingBody body)) return Mono.just(res);
+        return DataBufferUtils.join(body.content())
+                .map(buf -> {
+                    try {
+                        return buf.toString(StandardCharsets.UTF_8);
+                    } finally {
+                        DataBufferUtils.release(buf);
+                    }
+                })
+                .defaultIfEmpty("null")
+                .map(json -> {
+                    Map<String, Object> out = new LinkedHashMap<>(res);
+                    out.put("result", new RawValue(json));
+                    return out;
+                });
+    }
+
+    private static Map<String, Object> error(String code, String message) {
+        Map<String, Object> err = new LinkedHashMap<>();
+        err.put("ok", false);
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("code", code);
+        e.put("message", message);
+        err.put("error", e);
+        return err;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight for one tool: concurrent calls with the same canonical arguments share one
+ * upstream call. Only for idempotent tools, enabled with {@code "coalesce": true}.
+ */
+public final class InFlightCalls {
+    private final Map<String, Mono<Map<String, Object>>> calls = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public Mono<Map<String, Object>> execute(JsonNode args, Supplier<Mono<Map<String, Object>>> call) {
+        return Mono.defer(() -> {
+            String key = ArgsKey.of(args);
+            Mono<Map<String, Object>> existing = calls.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            AtomicReference<Mono<Map<String, Object>>> self = new AtomicReference<>();
+            // share() keeps the upstream alive while at least one caller is still subscribed
+            self.set(Mono.defer(call).doFinally(s -> calls.remove(key, self.get())).share());
+            existing = calls.putIfAbsent(key, self.get());
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            return self.get();
+        });
+    }
+
+    public long coalesced() { return coalesced.sum(); }
+}
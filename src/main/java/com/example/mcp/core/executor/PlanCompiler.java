@@ -0,0 +1,165 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.infra.http.UpstreamClient;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.http.UpstreamKey;
+import com.example.mcp.infra.secrets.SecretStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import feign.Request;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class PlanCompiler {
+    private static final int DEFAULT_TIMEOUT_MS = 3000;
+
+    private final TemplateEngine tpl = new TemplateEngine();
+    private final UpstreamClientManager clients;
+    private final SecretStore secrets;
+    private final long maxResponseBytes;
+
+    public PlanCompiler(UpstreamClientManager clients, SecretStore secrets,
+                        @Value("${app.upstream.max-response-bytes:16777216}") long maxResponseBytes) {
+        this.clients = clients;
+        this.secrets = secrets;
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    public ToolPlan compile(ToolConfig cfg) {
+        String type = cfg.type();
+        JsonNode response = cfg.response() == null ? MissingNode.getInstance() : cfg.response();
+        return switch (type) {
+            case "http" -> compileHttp(cfg.http(), response, cfg);
+            case "feign" -> compileFeign(cfg.feign(), response, cfg);
+            default -> new ToolPlan(type, null, null, null, List.of(), null, null, false, null, false, 0, null, null, null, null, null,
+                    SchemaValidator.compile(cfg.inputSchema()), null);
+        };
+    }
+
+    private ToolPlan compileHttp(JsonNode http, JsonNode response, ToolConfig cfg) {
+        String method = http.path("method").asText("GET");
+        Template url = tpl.compile(withQuery(http.path("url").asText(), http.get("query")), Template.Escape.URL);
+        Duration timeout = Duration.ofMillis(http.path("timeoutMs").asInt(DEFAULT_TIMEOUT_MS));
+        boolean http2 = http.path("http2").asBoolean(true);
+        List<ToolPlan.Param> headers = headers(http.get("headers"));
+        Template body = body(http);
+        return new ToolPlan("http",
+                HttpMethod.valueOf(method),
+                null,
+                url,
+                headers,
+                body,
+                timeout,
+                http2,
+                upstream(url, timeout, http2),
+                response.path("passthrough").asBoolean(false),
+                response.path("maxBytes").asLong(maxResponseBytes),
+                projection(response),
+                cache(cfg.cache(), response),
+                inFlight(cfg.coalesce(), response),
+                ToolLimiter.compile(cfg.limits()),
+                UpstreamPolicy.compile(http, HttpMethod.valueOf(method)),
+                SchemaValidator.compile(cfg.inputSchema()),
+                secrets(url, headers, body));
+    }
+
+    private ToolPlan compileFeign(JsonNode feign, JsonNode response, ToolConfig cfg) {
+        String method = feign.path("method").asText("GET");
+        List<ToolPlan.Param> headers = headers(feign.get("headers"));
+        Template body = body(feign);
+        if (body != null && headers.stream().noneMatch(p -> p.name().equals("Content-Type"))) {
+            headers = new ArrayList<>(headers);
+            headers.add(new ToolPlan.Param("Content-Type", tpl.compile("application/json", Template.Escape.HEADER)));
+            headers = List.copyOf(headers);
+        }
+        Template url = tpl.compile(feign.path("baseUrl").asText() + feign.path("path").asText(), Template.Escape.URL);
+        Duration timeout = Duration.ofMillis(feign.path("timeoutMs").asInt(DEFAULT_TIMEOUT_MS));
+        boolean http2 = feign.path("http2").asBoolean(true);
+        return new ToolPlan("feign",
+                HttpMethod.valueOf(method),
+                Request.HttpMethod.valueOf(method),
+                url,
+                headers,
+                body,
+                timeout,
+                http2,
+                upstream(url, timeout, http2),
+                response.path("passthrough").asBoolean(false),
+                response.path("maxBytes").asLong(maxResponseBytes),
+                projection(response),
+                cache(cfg.cache(), response),
+                inFlight(cfg.coalesce(), response),
+                ToolLimiter.compile(cfg.limits()),
+                UpstreamPolicy.compile(feign, HttpMethod.valueOf(method)),
+                SchemaValidator.compile(cfg.inputSchema()),
+                secrets(url, headers, body));
+    }
+
+    // Binds the plan to the secrets its templates name, so a call never sees the rest of the store
+    private SecretBinding secrets(Template url, List<ToolPlan.Param> headers, Template body) {
+        Set<String> keys = new HashSet<>(url.secretKeys());
+        for (ToolPlan.Param p : headers) keys.addAll(p.value().secretKeys());
+        if (body != null) keys.addAll(body.secretKeys());
+        return keys.isEmpty() ? null : new SecretBinding(secrets, keys);
+    }
+
+    // Pass-through bytes are never parsed, so there is nothing to project
+    private static ResponseProjection projection(JsonNode response) {
+        return response.path("passthrough").asBoolean(false) ? null : ResponseProjection.compile(response);
+    }
+
+    // Pass-through bodies are never materialized, so there is nothing to cache
+    private static ToolCache cache(JsonNode cache, JsonNode response) {
+        return response.path("passthrough").asBoolean(false) ? null : ToolCache.compile(cache);
+    }
+
+    // A pass-through body can only be consumed once, so it cannot be shared either
+    private static InFlightCalls inFlight(boolean coalesce, JsonNode response) {
+        return coalesce && !response.path("passthrough").asBoolean(false) ? new InFlightCalls() : null;
+    }
+
+    private UpstreamClient upstream(Template url, Duration timeout, boolean http2) {
+        UpstreamKey key = UpstreamKey.fromPrefix(url.literalPrefix(), url.isConstant(), timeout, http2);
+        return key == null ? null : clients.get(key);
+    }
+
+    // query (simple append, folded into the URL template so a call renders one string)
+    private static String withQuery(String url, JsonNode query) {
+        if (query == null || !query.isObject() || query.isEmpty()) return url;
+        StringBuilder sb = new StringBuilder(url);
+        boolean first = !url.contains("?");
+        Iterator<Map.Entry<String, JsonNode>> it = query.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> e = it.next();
+            sb.append(first ? '?' : '&').append(e.getKey()).append('=').append(e.getValue().asText());
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    private List<ToolPlan.Param> headers(JsonNode node) {
+        if (node == null || !node.isObject()) return List.of();
+        List<ToolPlan.Param> res = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> e = it.next();
+            res.add(new ToolPlan.Param(e.getKey(), tpl.compile(e.getValue().asText(), Template.Escape.HEADER)));
+        }
+        return List.copyOf(res);
+    }
+
+    private Template body(JsonNode block) {
+        return block.has("body") ? tpl.compile(block.get("body").toString(), Template.Escape.JSON) : null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.core.metrics.ToolMetrics;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.infra.http.UpstreamClient;
+import com.example.mcp.infra.http.UpstreamKey;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Readies new and changed plans before they are published, so their first call does not pay for
+ * DNS, connection setup, TLS and cold template code. Per upstream: resolve the host, then open up to
+ * {@code connections} pooled connections with concurrent requests, the tool's {@code warmup.probe}
+ * path if it sets one ({@code http}/{@code feign} block: {@code "warmup":{"connections":4,"probe":"/health"}}),
+ * otherwise {@code HEAD /} (an upstream that answers HEAD with a body needs a probe, or the leftover
+ * bytes break the pooled connection). Failures are logged and never hold a tool back; the whole stage is
+ * bounded by {@code app.warmup.timeout-ms}. Its duration is recorded per tool as the warmup phase.
+ */
+@Component
+public class PlanWarmer {
+    private static final Logger log = LoggerFactory.getLogger(PlanWarmer.class);
+    private static final JsonNode NO_ARGS = JsonNodeFactory.instance.objectNode();
+
+    private final ToolMetrics metrics;
+    private final boolean enabled;
+    private final int connections;
+    private final Duration timeout;
+
+    public PlanWarmer(ToolMetrics metrics,
+                      @Value("${app.warmup.enabled:true}") boolean enabled,
+                      @Value("${app.warmup.connections:2}") int connections,
+                      @Value("${app.warmup.timeout-ms:3000}") long timeoutMs) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.connections = Math.max(0, connections);
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /** Blocks until every handle is warm or the timeout passes. Tools sharing an upstream warm it once. */
+    public void warm(Collection<ToolHandle> handles) {
+        if (!enabled || handles.isEmpty()) return;
+        Map<UpstreamKey, Mono<Void>> upstreams = new HashMap<>();
+        List<Mono<Void>> tools = new ArrayList<>(handles.size());
+        for (ToolHandle h : handles) {
+            ToolPlan plan = h.plan();
+            UpstreamClient up = plan.upstream();
+            Mono<Void> pool = up == null ? Mono.empty() : upstreams.computeIfAbsent(up.key(),
+                    k -> upstream(up, warmup(h.config()), h.config().name()).cache());
+            ToolMetrics.Tool m = metrics.tool(h.config().name());
+            tools.add(Mono.defer(() -> {
+                long start = System.nanoTime();
+                return Mono.fromRunnable(() -> render(plan))
+                        .onErrorResume(e -> Mono.empty())
+                        .then(pool)
+                        .doFinally(s -> m.record(ToolMetrics.Phase.WARMUP, System.nanoTime() - start));
+            }));
+        }
+        long start = System.nanoTime();
+        Mono.when(tools)
+                .timeout(timeout, Mono.fromRunnable(() -> log.warn("Warm-up of {} tools cut off after {} ms",
+                        handles.size(), timeout.toMillis())))
+                .block();
+        log.debug("Warmed {} tools over {} upstreams in {} ms", handles.size(), upstreams.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static JsonNode warmup(ToolConfig cfg) {
+        return ("feign".equals(cfg.type()) ? cfg.feign() : cfg.http()).path("warmup");
+    }
+
+    // Runs the render path once, with no arguments, so its first real call does not run it cold
+    private static void render(ToolPlan plan) {
+        if (plan.url() == null) return;
+        plan.url().render(NO_ARGS, null);
+        for (ToolPlan.Param p : plan.headers()) p.value().render(NO_ARGS, null);
+        if (plan.hasBody()) plan.body().render(NO_ARGS, null);
+    }
+
+    private Mono<Void> upstream(UpstreamClient up, JsonNode spec, String tool) {
+        String origin = up.key().origin();
+        String probe = spec.path("probe").asText(null);
+        int n = spec.path("connections").asInt(connections);
+        Mono<Void> resolve = Mono.fromCallable(() -> InetAddress.getAllByName(up.key().host()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+        // Concurrent requests each take a connection of their own (HTTP/1.1), which goes back to the pool idle
+        Mono<Void> open = n <= 0 ? Mono.empty() : Flux.range(0, n)
+                .flatMap(i -> up.webClient()
+                        .method(probe != null ? HttpMethod.GET : HttpMethod.HEAD)
+                        .uri(origin + (probe != null ? probe : "/"))
+                        .exchangeToMono(r -> r.releaseBody().thenReturn(r.statusCode())), n)
+                .doOnNext(status -> {
+                    if (probe != null && !status.is2xxSuccessful()) {
+                        log.warn("Warm-up probe {}{} of tool {} answered {}", origin, probe, tool, status.value());
+                    }
+                })
+                .then();
+        return resolve.then(open)
+                .onErrorResume(e -> {
+                    log.warn("Warm-up of upstream {} for tool {} failed: {}", origin, tool, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reduces an upstream JSON body to what the tool's {@code response} block asks for, in one pass over
+ * the bytes as they arrive:
+ * <pre>{"select": ["/data/items", "/meta/total"], "fields": ["id", "name"], "maxItems": 20}</pre>
+ * {@code select} keeps the subtrees at these JSON pointers ({@code *} matches every element or field)
+ * in their original nesting; {@code fields} keeps only the listed fields of each selected object, or
+ * of the objects in a selected array; {@code maxItems} keeps the first items of every array. Skipped
+ * subtrees are tokenized but never built, so memory follows the result, not the upstream body.
+ */
+public final class ResponseProjection {
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    /** A step of the selected pointers; {@code leaf} keeps everything below it. */
+    private static final class Path {
+        final Map<String, Path> children = new HashMap<>();
+        Path any;
+        boolean leaf;
+
+        Path child(String key) {
+            Path p = children.get(key);
+            return p != null ? p : any;
+        }
+    }
+
+    private enum Mode { PATH, COPY, FILTER, FILTER_ITEMS, SKIP }
+
+    private final Path root;
+    private final Set<String> fields; // null keeps every field
+    private final int maxItems; // Integer.MAX_VALUE when arrays are not truncated
+
+    private ResponseProjection(Path root, Set<String> fields, int maxItems) {
+        this.root = root;
+        this.fields = fields;
+        this.maxItems = maxItems;
+    }
+
+    /** Returns null when the block neither selects, filters nor truncates. */
+    public static ResponseProjection compile(JsonNode response) {
+        JsonNode select = response.path("select");
+        JsonNode fields = response.path("fields");
+        int maxItems = response.path("maxItems").asInt(0);
+        if (!select.isArray() && !fields.isArray() && maxItems <= 0) return null;
+        Path root = new Path();
+        if (select.isArray() && !select.isEmpty()) {
+            for (JsonNode s : select) {
+                String pointer = s.asText();
+                if (!pointer.startsWith("/")) {
+                    if (pointer.isEmpty()) root.leaf = true;
+                    else throw new IllegalArgumentException("response.select: not a JSON pointer: " + pointer);
+                    continue;
+                }
+                Path p = root;
+                for (String step : pointer.substring(1).split("/", -1)) {
+                    if (step.equals("*")) {
+                        p = p.any != null ? p.any : (p.any = new Path());
+                    } else {
+                        p = p.children.computeIfAbsent(step.replace("~1", "/").replace("~0", "~"), k -> new Path());
+                    }
+                }
+                p.leaf = true;
+            }
+        } else {
+            root.leaf = true;
+        }
+        Set<String> allowed = null;
+        if (fields.isArray()) {
+            allowed = new HashSet<>();
+            for (JsonNode f : fields) allowed.add(f.asText());
+        }
+        return new ResponseProjection(root, allowed, maxItems > 0 ? maxItems : Integer.MAX_VALUE);
+    }
+
+    /**
+     * The projected document; an empty object when the body is empty or nothing matched. More than
+     * {@code maxBytes} of body fails with {@link DataBufferLimitException}, like a joined body would.
+     */
+    public Mono<JsonNode> apply(Flux<DataBuffer> body, long maxBytes) {
+        return Mono.defer(() -> {
+            Run run;
+            try {
+                run = new Run(maxBytes);
+            } catch (IOException e) {
+                return Mono.error(e);
+            }
+            return body.<Void>handle((buf, sink) -> {
+                        try {
+                            run.feed(buf);
+                        } catch (IOException | RuntimeException e) {
+                            sink.error(e);
+                        } finally {
+                            DataBufferUtils.release(buf);
+                        }
+                    })
+                    .then(Mono.fromCallable(run::finish))
+                    .doFinally(s -> run.close());
+        });
+    }
+
+    /** One container being read: how its members are treated and where kept ones go. */
+    private static final class Frame {
+        final Frame parent;
+        final String key; // field name in the parent object, null in an array or at the root
+        final Mode mode;
+        final Path path;
+        final boolean array;
+        JsonNode out; // created on the first kept member for PATH frames
+        String field; // current field name of an object
+        int index = -1; // current item of an array
+        int depth; // nesting below a SKIP frame
+
+        Frame(Frame parent, String key, Mode mode, Path path, boolean array) {
+            this.parent = parent;
+            this.key = key;
+            this.mode = mode;
+            this.path = path;
+            this.array = array;
+        }
+    }
+
+    private final class Run {
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final long maxBytes;
+        private long read;
+        private Frame top;
+        private JsonNode result;
+        private boolean started;
+
+        Run(long maxBytes) throws IOException {
+            this.parser = JSON.createNonBlockingByteArrayParser();
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.maxBytes = maxBytes;
+        }
+
+        void feed(DataBuffer buf) throws IOException {
+            int n = buf.readableByteCount();
+            read += n;
+            if (read > maxBytes) throw new DataBufferLimitException("Exceeded limit on max bytes to buffer : " + maxBytes);
+            byte[] bytes = new byte[n];
+            buf.read(bytes);
+            feeder.feedInput(bytes, 0, n);
+            drain();
+        }
+
+        JsonNode finish() throws IOException {
+            feeder.endOfInput();
+            drain();
+            if (top != null) throw new IOException("Unexpected end of upstream JSON");
+            return result != null ? result : NODES.objectNode();
+        }
+
+        void close() {
+            try {
+                parser.close();
+            } catch (IOException ignored) {
+                // nothing held but buffers
+            }
+        }
+
+        private void drain() throws IOException {
+            JsonToken t;
+            while ((t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) token(t);
+        }
+
+        private void token(JsonToken t) throws IOException {
+            if (top != null && top.mode == Mode.SKIP) {
+                if (t.isStructStart()) top.depth++;
+                else if (t.isStructEnd() && top.depth-- == 0) top = top.parent;
+                return;
+            }
+            if (t == JsonToken.FIELD_NAME) {
+                top.field = parser.currentName();
+                return;
+            }
+            if (t.isStructEnd()) {
+                Frame done = top;
+                top = done.parent;
+                if (top == null && done.out != null) result = done.out;
+                return;
+            }
+            if (top == null && started) return; // trailing content after the document
+            started = true;
+            boolean container = t.isStructStart();
+            Mode mode;
+            Path path = null;
+            if (top == null) {
+                path = root;
+                mode = root.leaf ? leaf(t) : container ? Mode.PATH : Mode.SKIP;
+            } else {
+                String key = null;
+                if (top.array) {
+                    top.index++;
+                    if (top.index >= maxItems) mode = Mode.SKIP;
+                    else mode = null;
+                } else {
+                    key = top.field;
+                    mode = null;
+                }
+                if (mode == null) {
+                    switch (top.mode) {
+                        case COPY -> mode = Mode.COPY;
+                        case FILTER -> mode = fields.contains(key) ? Mode.COPY : Mode.SKIP;
+                        case FILTER_ITEMS -> mode = t == JsonToken.START_OBJECT ? Mode.FILTER : Mode.COPY;
+                        default -> {
+                            path = top.path.child(top.array ? String.valueOf(top.index) : key);
+                            mode = path == null ? Mode.SKIP : path.leaf ? leaf(t) : container ? Mode.PATH : Mode.SKIP;
+                        }
+                    }
+                }
+            }
+            if (container) {
+                Frame f = new Frame(top, top != null && !top.array ? top.field : null, mode, path,
+                        t == JsonToken.START_ARRAY);
+                if (mode != Mode.PATH && mode != Mode.SKIP) attach(f, f.array ? NODES.arrayNode() : NODES.objectNode());
+                top = f;
+            } else if (mode != Mode.SKIP) {
+                JsonNode v = scalar(t);
+                if (top == null) result = v;
+                else put(top, top.array ? null : top.field, v);
+            }
+        }
+
+        private Mode leaf(JsonToken t) {
+            if (fields == null) return Mode.COPY;
+            return t == JsonToken.START_OBJECT ? Mode.FILTER : t == JsonToken.START_ARRAY ? Mode.FILTER_ITEMS : Mode.COPY;
+        }
+
+        private void attach(Frame f, JsonNode node) {
+            f.out = node;
+            if (f.parent == null) result = node;
+            else put(f.parent, f.key, node);
+        }
+
+        // Parents on a selected path exist only once something below them is kept
+        private void put(Frame f, String key, JsonNode v) {
+            if (f.out == null) attach(f, f.array ? NODES.arrayNode() : NODES.objectNode());
+            if (f.array) ((ArrayNode) f.out).add(v);
+            else ((ObjectNode) f.out).set(key, v);
+        }
+
+        private JsonNode scalar(JsonToken t) throws IOException {
+            return switch (t) {
+                case VALUE_STRING -> NODES.textNode(parser.getText());
+                case VALUE_NUMBER_INT -> switch (parser.getNumberType()) {
+                    case INT -> NODES.numberNode(parser.getIntValue());
+                    case LONG -> NODES.numberNode(parser.getLongValue());
+                    default -> NODES.numberNode(parser.getBigIntegerValue());
+                };
+                case VALUE_NUMBER_FLOAT -> NODES.numberNode(parser.getDoubleValue());
+                case VALUE_TRUE -> NODES.booleanNode(true);
+                case VALUE_FALSE -> NODES.booleanNode(false);
+                default -> NODES.nullNode();
+            };
+        }
+    }
+}
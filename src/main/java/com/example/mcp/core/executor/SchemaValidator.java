@@ -0,0 +1,277 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A tool's {@code inputSchema} compiled once per refresh. Supports the JSON Schema subset tool
+ * schemas use in practice: type, properties, required, additionalProperties, items, enum, const,
+ * min/maxLength, pattern, minimum/maximum (and exclusive), min/maxItems, allOf/anyOf/oneOf.
+ * Other keywords are ignored. Checking a valid call allocates nothing (except pattern matchers);
+ * the error message and its path are only built on the way out of a failure.
+ */
+public final class SchemaValidator {
+    private static final JsonNode NO_ARGS = JsonNodeFactory.instance.objectNode();
+
+    private static final int OBJECT = 1, ARRAY = 2, STRING = 4, NUMBER = 8, INTEGER = 16, BOOLEAN = 32, NULL = 64;
+    private static final String[] TYPE_NAMES = {"object", "array", "string", "number", "integer", "boolean", "null"};
+    // enum and const compare numbers by value, at any depth: 1, 1.0 and a long 1 are the same instance
+    private static final Comparator<JsonNode> SAME_VALUE = (a, b) -> a.isNumber() && b.isNumber()
+            ? a.decimalValue().compareTo(b.decimalValue())
+            : a.equals(b) ? 0 : 1;
+
+    private final Node root;
+
+    private SchemaValidator(Node root) {
+        this.root = root;
+    }
+
+    /** Returns null when the schema is absent or accepts anything. */
+    public static SchemaValidator compile(JsonNode schema) {
+        Node root = node(schema);
+        return root == null ? null : new SchemaValidator(root);
+    }
+
+    /** Returns null when the arguments are valid, otherwise a message naming the offending location. */
+    public String validate(JsonNode args) {
+        String err = root.check(args == null || args.isMissingNode() ? NO_ARGS : args);
+        return err == null ? null : "arguments" + err;
+    }
+
+    private static Node node(JsonNode s) {
+        if (s == null || s.isMissingNode() || s.isNull()) return null;
+        if (s.isBoolean()) return s.booleanValue() ? null : new Node(true);
+        if (!s.isObject()) throw new IllegalArgumentException("Schema must be an object or boolean");
+        Node n = new Node(false);
+
+        JsonNode type = s.get("type");
+        if (type != null) {
+            if (type.isArray()) {
+                for (JsonNode t : type) n.types |= typeBit(t.asText());
+            } else {
+                n.types = typeBit(type.asText());
+            }
+            List<String> names = new ArrayList<>();
+            for (int i = 0; i < TYPE_NAMES.length; i++) if ((n.types & (1 << i)) != 0) names.add(TYPE_NAMES[i]);
+            n.typeText = String.join(" or ", names);
+        }
+        if (s.has("enum")) {
+            List<JsonNode> values = new ArrayList<>();
+            s.get("enum").forEach(values::add);
+            n.enumValues = values.toArray(new JsonNode[0]);
+            n.enumText = s.get("enum").toString();
+        }
+        n.constValue = s.get("const");
+        n.minLength = s.path("minLength").asInt(-1);
+        n.maxLength = s.path("maxLength").asInt(-1);
+        if (s.hasNonNull("pattern")) n.pattern = Pattern.compile(s.get("pattern").asText());
+        n.minimum = s.path("minimum").asDouble(Double.NaN);
+        n.maximum = s.path("maximum").asDouble(Double.NaN);
+        n.exclusiveMinimum = s.path("exclusiveMinimum").asDouble(Double.NaN);
+        n.exclusiveMaximum = s.path("exclusiveMaximum").asDouble(Double.NaN);
+        n.minItems = s.path("minItems").asInt(-1);
+        n.maxItems = s.path("maxItems").asInt(-1);
+        n.items = node(s.get("items"));
+
+        JsonNode props = s.get("properties");
+        if (props != null && props.isObject()) {
+            List<String> names = new ArrayList<>();
+            List<Node> nodes = new ArrayList<>();
+            props.fields().forEachRemaining(e -> {
+                Node child = node(e.getValue());
+                names.add(e.getKey());
+                nodes.add(child);
+            });
+            n.propNames = names.toArray(new String[0]);
+            n.propNodes = nodes.toArray(new Node[0]);
+            n.known = Set.copyOf(names);
+        }
+        JsonNode required = s.get("required");
+        if (required != null && required.isArray() && !required.isEmpty()) {
+            List<String> names = new ArrayList<>();
+            required.forEach(r -> names.add(r.asText()));
+            n.required = names.toArray(new String[0]);
+        }
+        JsonNode additional = s.get("additionalProperties");
+        if (additional != null) {
+            n.noAdditional = additional.isBoolean() && !additional.booleanValue();
+            n.additional = additional.isObject() ? node(additional) : null;
+            if (n.known == null) n.known = Set.of();
+        }
+        n.allOf = nodes(s.get("allOf"));
+        n.anyOf = nodes(s.get("anyOf"));
+        n.oneOf = nodes(s.get("oneOf"));
+        return n;
+    }
+
+    private static Node[] nodes(JsonNode list) {
+        if (list == null || !list.isArray() || list.isEmpty()) return null;
+        Node[] res = new Node[list.size()];
+        for (int i = 0; i < res.length; i++) {
+            Node n = node(list.get(i));
+            res[i] = n == null ? new Node(false) : n;
+        }
+        return res;
+    }
+
+    private static int typeBit(String type) {
+        for (int i = 0; i < TYPE_NAMES.length; i++) if (TYPE_NAMES[i].equals(type)) return 1 << i;
+        throw new IllegalArgumentException("Unknown schema type: " + type);
+    }
+
+    private static final class Node {
+        final boolean never;
+        int types;
+        String typeText;
+        JsonNode[] enumValues;
+        String enumText;
+        JsonNode constValue;
+        int minLength, maxLength, minItems, maxItems;
+        Pattern pattern;
+        double minimum, maximum, exclusiveMinimum, exclusiveMaximum;
+        Node items;
+        String[] propNames;
+        Node[] propNodes;
+        Set<String> known;
+        String[] required;
+        boolean noAdditional;
+        Node additional;
+        Node[] allOf, anyOf, oneOf;
+
+        Node(boolean never) {
+            this.never = never;
+            minLength = maxLength = minItems = maxItems = -1;
+            minimum = maximum = exclusiveMinimum = exclusiveMaximum = Double.NaN;
+        }
+
+        /** Returns null when valid, else the failure as {@code "/path message"}. */
+        String check(JsonNode v) {
+            if (never) return " is not allowed";
+            if (types != 0 && (types & typeOf(v)) == 0) return " must be " + typeText;
+            if (enumValues != null && !oneOfValues(v)) return " must be one of " + enumText;
+            if (constValue != null && !constValue.equals(SAME_VALUE, v)) return " must be " + constValue;
+            if (v.isTextual()) {
+                String err = checkString(v.textValue());
+                if (err != null) return err;
+            } else if (v.isNumber()) {
+                String err = checkNumber(v.doubleValue());
+                if (err != null) return err;
+            } else if (v.isArray()) {
+                String err = checkArray(v);
+                if (err != null) return err;
+            } else if (v.isObject()) {
+                String err = checkObject(v);
+                if (err != null) return err;
+            }
+            return checkCombinators(v);
+        }
+
+        private static int typeOf(JsonNode v) {
+            return switch (v.getNodeType()) {
+                case OBJECT -> OBJECT;
+                case ARRAY -> ARRAY;
+                case STRING -> STRING;
+                case BOOLEAN -> BOOLEAN;
+                case NULL -> NULL;
+                // An integral value satisfies both "integer" and "number", so 1.0 is an integer too
+                case NUMBER -> v.isIntegralNumber() || v.doubleValue() == Math.rint(v.doubleValue())
+                        ? NUMBER | INTEGER : NUMBER;
+                default -> 0;
+            };
+        }
+
+        private boolean oneOfValues(JsonNode v) {
+            for (JsonNode e : enumValues) if (e.equals(SAME_VALUE, v)) return true;
+            return false;
+        }
+
+        private String checkString(String s) {
+            if (minLength >= 0 || maxLength >= 0) {
+                int len = s.codePointCount(0, s.length());
+                if (minLength >= 0 && len < minLength) return " must be at least " + minLength + " characters";
+                if (maxLength >= 0 && len > maxLength) return " must be at most " + maxLength + " characters";
+            }
+            if (pattern != null && !pattern.matcher(s).find()) return " must match " + pattern.pattern();
+            return null;
+        }
+
+        private String checkNumber(double d) {
+            if (d < minimum) return " must be >= " + num(minimum);
+            if (d > maximum) return " must be <= " + num(maximum);
+            if (d <= exclusiveMinimum) return " must be > " + num(exclusiveMinimum);
+            if (d >= exclusiveMaximum) return " must be < " + num(exclusiveMaximum);
+            return null;
+        }
+
+        private static String num(double d) {
+            return d == Math.rint(d) && Math.abs(d) < 1e15 ? Long.toString((long) d) : Double.toString(d);
+        }
+
+        private String checkArray(JsonNode v) {
+            int size = v.size();
+            if (minItems >= 0 && size < minItems) return " must have at least " + minItems + " items";
+            if (maxItems >= 0 && size > maxItems) return " must have at most " + maxItems + " items";
+            if (items != null) {
+                for (int i = 0; i < size; i++) {
+                    String err = items.check(v.get(i));
+                    if (err != null) return "/" + i + err;
+                }
+            }
+            return null;
+        }
+
+        private String checkObject(JsonNode v) {
+            if (required != null) {
+                for (String r : required) if (!v.has(r)) return "/" + r + " is required";
+            }
+            if (propNames != null) {
+                for (int i = 0; i < propNames.length; i++) {
+                    if (propNodes[i] == null) continue;
+                    JsonNode c = v.get(propNames[i]);
+                    if (c == null) continue;
+                    String err = propNodes[i].check(c);
+                    if (err != null) return "/" + propNames[i] + err;
+                }
+            }
+            if (noAdditional || additional != null) {
+                Iterator<Map.Entry<String, JsonNode>> it = v.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> e = it.next();
+                    if (known.contains(e.getKey())) continue;
+                    if (noAdditional) return "/" + e.getKey() + " is not allowed";
+                    String err = additional.check(e.getValue());
+                    if (err != null) return "/" + e.getKey() + err;
+                }
+            }
+            return null;
+        }
+
+        private String checkCombinators(JsonNode v) {
+            if (allOf != null) {
+                for (Node n : allOf) {
+                    String err = n.check(v);
+                    if (err != null) return err;
+                }
+            }
+            if (anyOf != null) {
+                boolean any = false;
+                for (Node n : anyOf) {
+                    if (n.check(v) == null) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) return " must match at least one schema in anyOf";
+            }
+            if (oneOf != null) {
+                int matched = 0;
+                for (Node n : oneOf) if (n.check(v) == null) matched++;
+                if (matched != 1) return " must match exactly one schema in oneOf";
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.infra.secrets.SecretStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The secrets one plan's templates reference, cut from the {@link SecretStore} view when the plan is
+ * compiled and re-cut on the first call after the store reloads a change. A call reads one version.
+ */
+public final class SecretBinding {
+    private record Bound(long version, Map<String, String> values) {}
+
+    private final SecretStore store;
+    private final Set<String> keys;
+    private volatile Bound bound;
+
+    SecretBinding(SecretStore store, Set<String> keys) {
+        this.store = store;
+        this.keys = Set.copyOf(keys);
+        this.bound = bind(store.view());
+    }
+
+    public Set<String> keys() {
+        return keys;
+    }
+
+    public Map<String, String> values() {
+        Bound b = bound;
+        SecretStore.View v = store.view();
+        if (b.version() != v.version()) bound = b = bind(v);
+        return b.values();
+    }
+
+    private Bound bind(SecretStore.View view) {
+        Map<String, String> values = new HashMap<>(keys.size());
+        for (String k : keys) {
+            String s = view.values().get(k);
+            if (s != null) values.put(k, s);
+        }
+        return new Bound(view.version(), values);
+    }
+}
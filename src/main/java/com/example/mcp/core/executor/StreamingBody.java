@@ -0,0 +1,12 @@
+package com.example.mcp.core.executor;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+/**
+ * Result of a pass-through tool: the raw upstream JSON bytes, never parsed or decoded to a String.
+ * The consumer must subscribe exactly once (buffers are released by the writer). The body is known
+ * to fit the tool's {@code maxBytes} before it is handed over, since writers commit the envelope
+ * with its first byte.
+ */
+public record StreamingBody(Flux<DataBuffer> content) {}
@@ -0,0 +1,206 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A template compiled by {@link TemplateEngine}: literals and placeholders rendered in one pass
+ * into a per-thread reusable builder. Unresolved placeholders are emitted verbatim.
+ */
+public final class Template {
+    public enum Escape {
+        NONE,
+        /** args are encoded as URI components; literals and secrets only get illegal characters encoded. */
+        URL,
+        /** CR/LF are stripped so values cannot inject headers. */
+        HEADER,
+        /** values inside a JSON string literal are JSON-escaped. */
+        JSON
+    }
+
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUF = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String source;
+    private final Escape escape;
+    private final Segment[] segments;
+    private final String constant;
+
+    Template(String source, Escape escape, List<Segment> segments) {
+        this.source = source;
+        this.escape = escape;
+        this.segments = segments.toArray(new Segment[0]);
+        boolean literalOnly = segments.stream().allMatch(s -> s.kind == Kind.LITERAL);
+        this.constant = literalOnly ? concatLiterals(this.segments) : null;
+    }
+
+    public String source() { return source; }
+
+    public boolean isConstant() { return constant != null; }
+
+    /** Keys of the {@code {{secrets.X}}} placeholders. */
+    public Set<String> secretKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Segment s : segments) {
+            if (s.kind == Kind.SECRET) keys.add(s.path[0]);
+        }
+        return keys;
+    }
+
+    /** Text before the first placeholder. */
+    public String literalPrefix() {
+        StringBuilder sb = new StringBuilder();
+        for (Segment s : segments) {
+            if (s.kind != Kind.LITERAL) break;
+            sb.append(s.text);
+        }
+        return sb.toString();
+    }
+
+    public String render(JsonNode args, Map<String, String> secrets) {
+        if (constant != null) return constant;
+        StringBuilder sb = BUF.get();
+        sb.setLength(0);
+        renderTo(sb, args, secrets);
+        String out = sb.toString();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) BUF.remove();
+        return out;
+    }
+
+    public void renderTo(StringBuilder sb, JsonNode args, Map<String, String> secrets) {
+        if (constant != null) {
+            sb.append(constant);
+            return;
+        }
+        for (Segment s : segments) {
+            switch (s.kind) {
+                case LITERAL -> sb.append(s.text);
+                case ARG -> {
+                    JsonNode v = resolve(args, s.path);
+                    if (v == null) sb.append(s.text);
+                    else appendValue(sb, v.isTextual() ? v.asText() : v.toString(), s, false);
+                }
+                case SECRET -> {
+                    String v = secrets == null ? null : secrets.get(s.path[0]);
+                    if (v == null) sb.append(s.text);
+                    else appendValue(sb, v, s, true);
+                }
+            }
+        }
+    }
+
+    private static JsonNode resolve(JsonNode args, String[] path) {
+        JsonNode n = args;
+        for (String p : path) {
+            if (n == null) return null;
+            n = n.get(p);
+        }
+        return n;
+    }
+
+    private void appendValue(StringBuilder sb, String v, Segment s, boolean secret) {
+        switch (escape) {
+            case NONE -> sb.append(v);
+            case URL -> {
+                if (secret) appendIllegalUriEncoded(sb, v);
+                else appendUriComponent(sb, v);
+            }
+            case HEADER -> {
+                for (int i = 0; i < v.length(); i++) {
+                    char c = v.charAt(i);
+                    if (c != '\r' && c != '\n') sb.append(c);
+                }
+            }
+            case JSON -> {
+                if (s.inJsonString) JsonStringEncoder.getInstance().quoteAsString(v, sb);
+                else sb.append(v);
+            }
+        }
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isLegalUriChar(char c) {
+        return isUnreserved(c) || ":/?#[]@!$&'()*+,;=%".indexOf(c) >= 0;
+    }
+
+    private static void appendUriComponent(StringBuilder sb, String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (isUnreserved(c)) sb.append(c);
+            else i = appendPercentEncoded(sb, v, i);
+        }
+    }
+
+    private static void appendIllegalUriEncoded(StringBuilder sb, String v) {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (isLegalUriChar(c)) sb.append(c);
+            else i = appendPercentEncoded(sb, v, i);
+        }
+    }
+
+    // Encodes the code point at i as UTF-8 percent escapes; returns the index of its last char
+    private static int appendPercentEncoded(StringBuilder sb, String v, int i) {
+        int cp = v.codePointAt(i);
+        byte[] bytes = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return i + Character.charCount(cp) - 1;
+    }
+
+    static String encodeIllegalUriChars(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!isLegalUriChar(text.charAt(i))) {
+                StringBuilder sb = new StringBuilder(text.length() + 16);
+                appendIllegalUriEncoded(sb, text);
+                return sb.toString();
+            }
+        }
+        return text;
+    }
+
+    private static String concatLiterals(Segment[] segments) {
+        if (segments.length == 1) return segments[0].text;
+        StringBuilder sb = new StringBuilder();
+        for (Segment s : segments) sb.append(s.text);
+        return sb.toString();
+    }
+
+    enum Kind { LITERAL, ARG, SECRET }
+
+    static final class Segment {
+        final Kind kind;
+        final String text; // literal text, or the raw placeholder emitted when unresolved
+        final String[] path;
+        final boolean inJsonString;
+
+        private Segment(Kind kind, String text, String[] path, boolean inJsonString) {
+            this.kind = kind;
+            this.text = text;
+            this.path = path;
+            this.inJsonString = inJsonString;
+        }
+
+        static Segment literal(String text) { return new Segment(Kind.LITERAL, text, null, false); }
+
+        static Segment arg(String[] path, String raw, boolean inJsonString) {
+            return new Segment(Kind.ARG, raw, path, inJsonString);
+        }
+
+        static Segment secret(String key, String raw, boolean inJsonString) {
+            return new Segment(Kind.SECRET, raw, new String[]{key}, inJsonString);
+        }
+    }
+}
@@ -1,31 +1,55 @@
 package com.example.mcp.core.executor;
 
-import com.fasterxml.jackson.databind.JsonNode;
-
-import java.util.Iterator;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Parses {@code {{args.x}}} / {@code {{secrets.X}}} templates once into a {@link Template}
+ * so that rendering is a single pass over pre-split segments.
+ */
 public class TemplateEngine {
-    public String render(String tpl, JsonNode args, Map<String, String> secrets) {
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+
+    public Template compile(String tpl, Template.Escape escape) {
         if (tpl == null) return null;
-        String out = tpl;
-        // Replace args.xxx
-        if (args != null) {
-            Iterator<Map.Entry<String, JsonNode>> it = args.fields();
-            while (it.hasNext()) {
-                Map.Entry<String, JsonNode> e = it.next();
-                String key = e.getKey();
-                String val = e.getValue().isTextual() ? e.getValue().asText() : e.getValue().toString();
-                out = out.replace("{{args." + key + "}}", val);
+        List<Template.Segment> segs = new ArrayList<>();
+        boolean inString = false;
+        int pos = 0;
+        while (pos < tpl.length()) {
+            int open = tpl.indexOf(OPEN, pos);
+            int close = open < 0 ? -1 : tpl.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                inString = addLiteral(segs, tpl.substring(pos), escape, inString);
+                break;
             }
-        }
-        // Replace secrets.KEY
-        if (secrets != null) {
-            for (var en : secrets.entrySet()) {
-                out = out.replace("{{secrets." + en.getKey() + "}}", en.getValue());
+            String raw = tpl.substring(open, close + CLOSE.length());
+            String expr = tpl.substring(open + OPEN.length(), close).trim();
+            inString = addLiteral(segs, tpl.substring(pos, open), escape, inString);
+            String fallback = escape == Template.Escape.URL ? Template.encodeIllegalUriChars(raw) : raw;
+            if (expr.startsWith("args.") && expr.length() > 5) {
+                segs.add(Template.Segment.arg(expr.substring(5).split("\\."), fallback, inString));
+            } else if (expr.startsWith("secrets.") && expr.length() > 8) {
+                segs.add(Template.Segment.secret(expr.substring(8), fallback, inString));
+            } else {
+                inString = addLiteral(segs, raw, escape, inString);
             }
+            pos = close + CLOSE.length();
         }
-        return out;
+        return new Template(tpl, escape, segs);
     }
-}
 
+    private static boolean addLiteral(List<Template.Segment> segs, String text, Template.Escape escape, boolean inString) {
+        if (text.isEmpty()) return inString;
+        if (escape == Template.Escape.URL) text = Template.encodeIllegalUriChars(text);
+        segs.add(Template.Segment.literal(text));
+        if (escape != Template.Escape.JSON) return inString;
+        // Track whether the next placeholder sits inside a JSON string literal
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && inString) i++;
+            else if (c == '"') inString = !inString;
+        }
+        return inString;
+    }
+}
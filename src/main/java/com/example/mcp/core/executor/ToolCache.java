@@ -0,0 +1,126 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import reactor.core.publisher.Mono;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-tool response cache configured by the tool's {@code cache} block:
+ * <pre>{"ttlMs": 60000, "staleWhileRevalidateMs": 30000, "maxEntries": 1000, "maxBytes": 8388608, "keyFields": ["city"]}</pre>
+ * Only successful results are cached. It lives on the compiled plan, so a config change drops it.
+ */
+public final class ToolCache {
+    private final long ttlNanos;
+    private final String[][] keyFields;
+    private final Cache<String, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private record Entry(JsonNode value, long writtenNanos, AtomicBoolean refreshing) {}
+
+    private ToolCache(long ttlMs, long swrMs, long maxEntries, long maxBytes, String[][] keyFields) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.keyFields = keyFields;
+        // Each entry weighs at least maxBytes/maxEntries, so both bounds hold with one weigher
+        long minWeight = Math.max(1, maxBytes / maxEntries);
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttlMs + swrMs, TimeUnit.MILLISECONDS)
+                .maximumWeight(maxBytes)
+                .<String, Entry>weigher((k, e) -> (int) Math.min(Integer.MAX_VALUE,
+                        Math.max(minWeight, k.length() * 2L + estimateBytes(e.value()))))
+                .recordStats()
+                .build();
+    }
+
+    /** Returns null when the block is absent or disabled. */
+    public static ToolCache compile(JsonNode cfg) {
+        if (cfg == null || !cfg.isObject() || !cfg.path("enabled").asBoolean(true)) return null;
+        long ttlMs = cfg.path("ttlMs").asLong(60_000);
+        if (ttlMs <= 0) return null;
+        String[][] keyFields = null;
+        if (cfg.path("keyFields").isArray()) {
+            keyFields = new String[cfg.get("keyFields").size()][];
+            int i = 0;
+            for (JsonNode f : cfg.get("keyFields")) keyFields[i++] = f.asText().split("\\.");
+        }
+        return new ToolCache(ttlMs,
+                Math.max(0, cfg.path("staleWhileRevalidateMs").asLong(0)),
+                Math.max(1, cfg.path("maxEntries").asLong(1000)),
+                Math.max(1, cfg.path("maxBytes").asLong(16L << 20)),
+                keyFields);
+    }
+
+    public Mono<Map<String, Object>> get(JsonNode args, Supplier<Mono<Map<String, Object>>> loader) {
+        String key = ArgsKey.of(args, keyFields);
+        Entry e = cache.getIfPresent(key);
+        if (e != null) {
+            if (System.nanoTime() - e.writtenNanos() < ttlNanos) {
+                hits.increment();
+            } else {
+                staleHits.increment();
+                // Serve the stale value and refresh once in the background
+                if (e.refreshing().compareAndSet(false, true)) {
+                    load(key, loader).doFinally(s -> e.refreshing().set(false)).subscribe(r -> {}, err -> {});
+                }
+            }
+            return Mono.just(ok(e.value()));
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    private Mono<Map<String, Object>> load(String key, Supplier<Mono<Map<String, Object>>> loader) {
+        return loader.get().doOnNext(res -> {
+            if (Boolean.TRUE.equals(res.get("ok")) && res.get("result") instanceof JsonNode value) {
+                cache.put(key, new Entry(value, System.nanoTime(), new AtomicBoolean()));
+            }
+        });
+    }
+
+    public void invalidateAll() { cache.invalidateAll(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hits", hits.sum());
+        m.put("staleHits", staleHits.sum());
+        m.put("misses", misses.sum());
+        m.put("evictions", cache.stats().evictionCount());
+        m.put("entries", cache.estimatedSize());
+        return m;
+    }
+
+    private static Map<String, Object> ok(JsonNode value) {
+        Map<String, Object> ok = new LinkedHashMap<>();
+        ok.put("ok", true);
+        ok.put("result", value);
+        return ok;
+    }
+
+    // Rough serialized size of a tree, good enough for weighing entries
+    static long estimateBytes(JsonNode n) {
+        if (n == null) return 4;
+        if (n.isTextual()) return n.textValue().length() + 2L;
+        if (n.isValueNode()) return 8;
+        long size = 2;
+        if (n.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> it = n.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> f = it.next();
+                size += f.getKey().length() + 4 + estimateBytes(f.getValue());
+            }
+        } else {
+            for (JsonNode c : n) size += 1 + estimateBytes(c);
+        }
+        return size;
+    }
+}
@@ -1,148 +1,297 @@
 package com.example.mcp.core.executor;
 
+import com.example.mcp.core.metrics.ToolMetrics;
 import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.shard.PeerForwarder;
+import com.example.mcp.infra.http.CircuitBreaker;
+import com.example.mcp.infra.http.UpstreamClient;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.http.UpstreamResponse;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
-import feign.Client;
 import feign.Request;
 import feign.Response;
 
 @Component
 public class ToolExecutor {
-    private final ObjectMapper om = new ObjectMapper();
-    private final TemplateEngine tpl = new TemplateEngine();
+    // Netty buffers like an upstream body's, so writers can join them behind an envelope
+    private static final NettyDataBufferFactory UNPOOLED = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    private final ObjectMapper om;
+    private final UpstreamClientManager clients;
+    private final boolean blockingFeign;
+    private final ToolLimiter globalLimiter; // null when unbounded
+    private final ToolMetrics metrics;
+    private final PeerForwarder peers;
+
+    public ToolExecutor(UpstreamClientManager clients, ToolMetrics metrics, PeerForwarder peers, ObjectMapper om,
+                        @Value("${app.feign.engine:reactive}") String feignEngine,
+                        @Value("${app.limits.max-concurrency:0}") int maxConcurrency,
+                        @Value("${app.limits.rate-per-sec:0}") double ratePerSec,
+                        @Value("${app.limits.queue:0}") int queue,
+                        @Value("${app.limits.queue-timeout-ms:1000}") long queueTimeoutMs) {
+        this.clients = clients;
+        this.metrics = metrics;
+        this.peers = peers;
+        this.om = om;
+        this.blockingFeign = "blocking".equalsIgnoreCase(feignEngine);
+        this.globalLimiter = maxConcurrency > 0 || ratePerSec > 0
+                ? new ToolLimiter(maxConcurrency, 1, false, ratePerSec, (int) Math.max(1, Math.ceil(ratePerSec)),
+                        queue, Duration.ofMillis(queueTimeoutMs))
+                : null;
+    }
 
     public Mono<Map<String, Object>> executeReactive(ToolHandle handle, JsonNode args) {
-        String type = handle.config().type();
+        ToolMetrics.Tool m = metrics.tool(handle.config().name());
+        return Mono.defer(() -> {
+            long start = m.started();
+            String[] code = {"CANCELLED"};
+            Mono<Map<String, Object>> call = handle.plan() == ToolPlan.PEER
+                    ? forward(handle, args, m)
+                    : execute(handle.plan(), args, m);
+            return call.doOnNext(res -> code[0] = errorCode(res))
+                    .doFinally(s -> m.finished(start, code[0]));
+        });
+    }
+
+    private Mono<Map<String, Object>> execute(ToolPlan plan, JsonNode args, ToolMetrics.Tool m) {
+        // Malformed calls are rejected before anything is rendered or sent upstream
+        if (plan.validator() != null) {
+            String invalid = plan.validator().validate(args);
+            if (invalid != null) return Mono.just(error("INVALID_PARAMS", invalid));
+        }
+        // Only calls that reach the upstream take a permit: cache hits and coalesced followers do not
+        Supplier<Mono<Map<String, Object>>> upstream = () -> limited(plan, m, () -> dispatch(plan, args, m));
+        Supplier<Mono<Map<String, Object>>> call = plan.inFlight() != null
+                ? () -> plan.inFlight().execute(args, upstream)
+                : upstream;
+        return plan.cache() != null ? plan.cache().get(args, call) : call.get();
+    }
+
+    // The owning node validates, limits and caches the call; here it only costs the hop
+    private Mono<Map<String, Object>> forward(ToolHandle handle, JsonNode args, ToolMetrics.Tool m) {
+        long sent = System.nanoTime();
+        return peers.call(handle.config().name(), args)
+                .doFinally(s -> m.record(ToolMetrics.Phase.UPSTREAM, System.nanoTime() - sent));
+    }
+
+    // The tool's own limits are checked first so a saturated tool is shed without touching the global budget
+    private Mono<Map<String, Object>> limited(ToolPlan plan, ToolMetrics.Tool m, Supplier<Mono<Map<String, Object>>> call) {
+        if (plan.limiter() == null && globalLimiter == null) return call.get();
+        long queued = System.nanoTime();
+        Supplier<Mono<Map<String, Object>>> admitted = () -> {
+            m.record(ToolMetrics.Phase.QUEUE, System.nanoTime() - queued);
+            return call.get();
+        };
+        Supplier<Mono<Map<String, Object>>> global = globalLimiter != null ? () -> globalLimiter.run(admitted) : admitted;
+        return plan.limiter() != null ? plan.limiter().run(global) : global.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String errorCode(Map<String, Object> res) {
+        if (Boolean.TRUE.equals(res.get("ok"))) return null;
+        Object err = res.get("error");
+        return err instanceof Map<?, ?> e ? String.valueOf(((Map<String, Object>) e).get("code")) : "INTERNAL";
+    }
+
+    public ToolLimiter globalLimiter() {
+        return globalLimiter;
+    }
+
+    private Mono<Map<String, Object>> dispatch(ToolPlan plan, JsonNode args, ToolMetrics.Tool m) {
         try {
-            return switch (type) {
-                case "http" -> execHttpReactive(handle, args);
-                case "feign" -> Mono.fromCallable(() -> execFeign(handle, args))
-                        .subscribeOn(reactor.core.scheduler.Schedulers.boundedElastic())
-                        .onErrorResume(e -> Mono.just(error("INTERNAL", e.getMessage())));
-                default -> Mono.just(error("UNSUPPORTED_TYPE", "Unsupported type: " + type));
+            return switch (plan.type()) {
+                case "http" -> complete(plan, send(plan, args, false, m), m);
+                // feign requests share the reactive Netty stack unless the blocking OkHttp engine is selected
+                case "feign" -> complete(plan, send(plan, args, true, m), m);
+                default -> Mono.just(error("UNSUPPORTED_TYPE", "Unsupported type: " + plan.type()));
             };
         } catch (Exception e) {
             return Mono.just(error("INTERNAL", e.getMessage()));
         }
     }
 
-    private Mono<Map<String, Object>> execHttpReactive(ToolHandle handle, JsonNode args) throws Exception {
-        JsonNode http = handle.config().http();
-        String method = http.path("method").asText("GET");
-        String urlTpl = http.path("url").asText();
-        int timeoutMs = http.path("timeoutMs").asInt(3000);
-
-        Map<String, String> secrets = System.getenv();
-        String url = tpl.render(urlTpl, args, secrets);
+    /**
+     * Turns the upstream body into a result: parsed straight from the joined buffers, reduced by the
+     * tool's {@link ResponseProjection} as it streams in, or handed over untouched as a
+     * {@link StreamingBody} for pass-through tools.
+     */
+    private Mono<Map<String, Object>> complete(ToolPlan plan, Mono<UpstreamResponse> response, ToolMetrics.Tool m) {
+        long sent = System.nanoTime();
+        long limit = plan.maxResponseBytes();
+        Duration timeout = plan.timeout().plusSeconds(1);
+        Mono<Map<String, Object>> res;
+        if (plan.passthrough()) {
+            // The writer commits the envelope with the first byte, so a body must be known to fit by then:
+            // an announced length was checked with the headers and streams through, any other is read first
+            res = response.flatMap(r -> r.length() >= 0
+                    ? Mono.just(ok(new StreamingBody(r.body())))
+                    : buffered(r.body(), limit).timeout(timeout).map(body -> ok(new StreamingBody(body))));
+        } else if (plan.projection() != null) {
+            // Reduced while the body streams in; it is never joined
+            res = response.flatMap(r -> plan.projection().apply(r.body(), limit).timeout(timeout)).map(this::ok);
+        } else {
+            res = response.flatMap(r -> DataBufferUtils.join(r.body(), (int) Math.min(limit, Integer.MAX_VALUE)).timeout(timeout))
+                    .map(buf -> {
+                        try (InputStream in = buf.asInputStream(true)) {
+                            return ok(om.readTree(in));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e.getMessage(), e);
+                        }
+                    })
+                    .switchIfEmpty(Mono.fromSupplier(() -> ok(om.createObjectNode())));
+        }
+        return res.doOnSuccess(r -> m.record(ToolMetrics.Phase.UPSTREAM, System.nanoTime() - sent))
+                .doOnError(e -> m.record(ToolMetrics.Phase.UPSTREAM, System.nanoTime() - sent))
+                .onErrorResume(e -> Mono.just(e instanceof DataBufferLimitException
+                ? error("RESPONSE_TOO_LARGE", "Upstream response exceeds " + limit + " bytes")
+                : e instanceof CircuitBreaker.OpenException
+                ? error("CIRCUIT_OPEN", e.getMessage())
+                : error("INTERNAL", e.getMessage())));
+    }
 
-        WebClient client = WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().responseTimeout(Duration.ofMillis(timeoutMs))))
-                .build();
+    /**
+     * Renders the request once and sends it through the tool's upstream policy, so retries and
+     * hedged attempts reuse the rendered URL, headers and body. Each attempt is bounded by the
+     * tool timeout up to the response headers.
+     */
+    private Mono<UpstreamResponse> send(ToolPlan plan, JsonNode args, boolean feign, ToolMetrics.Tool m) {
+        long start = System.nanoTime();
+        Map<String, String> secrets = plan.secrets() != null ? plan.secrets().values() : Map.of();
+        String url = plan.url().render(args, secrets);
+        URI uri = URI.create(url);
 
         // headers
         HttpHeaders headers = new HttpHeaders();
-        if (http.has("headers")) {
-            Iterator<String> f = http.get("headers").fieldNames();
-            while (f.hasNext()) {
-                String k = f.next();
-                String v = tpl.render(http.get("headers").get(k).asText(), args, secrets);
-                headers.add(k, v);
-            }
+        for (ToolPlan.Param p : plan.headers()) {
+            headers.add(p.name(), p.value().render(args, secrets));
         }
+        String body = plan.hasBody() ? plan.body().render(args, secrets) : null;
+        m.record(ToolMetrics.Phase.RENDER, System.nanoTime() - start);
 
-        // query (simple append for GET)
-        if (http.has("query")) {
-            Iterator<String> f = http.get("query").fieldNames();
-            StringBuilder sb = new StringBuilder(url);
-            boolean first = !url.contains("?");
-            while (f.hasNext()) {
-                String k = f.next();
-                String v = tpl.render(http.get("query").get(k).asText(), args, secrets);
-                sb.append(first ? '?' : '&').append(k).append('=').append(v);
-                first = false;
-            }
-            url = sb.toString();
-        }
+        UpstreamClient upstream = upstream(plan, uri);
+        Duration timeout = plan.timeout().plusSeconds(1);
+        Supplier<Mono<UpstreamResponse>> attempt = feign && blockingFeign
+                ? () -> execFeign(plan, upstream, url, headers, body).timeout(timeout)
+                : () -> execHttpReactive(plan, upstream, uri, headers, body, feign).timeout(timeout);
+        return plan.policy() != null ? plan.policy().execute(upstream, attempt) : attempt.get();
+    }
 
-        WebClient.RequestBodyUriSpec uriSpec = client.method(org.springframework.http.HttpMethod.valueOf(method));
-        WebClient.RequestBodySpec bodySpec = uriSpec.uri(url).headers(h -> h.addAll(headers));
+    /**
+     * With {@code feignSemantics} the request mirrors what the feign client would do: the
+     * Content-Type header comes from the plan and any status code yields the response body.
+     */
+    private Mono<UpstreamResponse> execHttpReactive(ToolPlan plan, UpstreamClient upstream, URI url, HttpHeaders headers,
+                                                    String body, boolean feignSemantics) {
+        WebClient.RequestBodySpec bodySpec = upstream.webClient().method(plan.method()).uri(url).headers(h -> h.addAll(headers));
         WebClient.RequestHeadersSpec<?> reqSpec;
-
-        if (http.has("body")) {
-            String bodyStr = tpl.render(http.get("body").toString(), args, secrets);
-            reqSpec = bodySpec.contentType(MediaType.APPLICATION_JSON).body(BodyInserters.fromValue(bodyStr));
+        if (body != null) {
+            if (!feignSemantics) bodySpec = bodySpec.contentType(MediaType.APPLICATION_JSON);
+            reqSpec = bodySpec.body(BodyInserters.fromValue(body));
         } else {
             reqSpec = bodySpec;
         }
 
-        return reqSpec.retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofMillis(timeoutMs + 1000L))
-                .flatMap(resp -> Mono.fromCallable(() -> {
-                    Map<String, Object> ok = new LinkedHashMap<>();
-                    ok.put("ok", true);
-                    ok.put("result", om.readTree(resp));
-                    return ok;
-                }))
-                .onErrorResume(e -> Mono.just(error("INTERNAL", e.getMessage())));
-    }
-
-    private Map<String, Object> execFeign(ToolHandle handle, JsonNode args) throws Exception {
-        JsonNode feign = handle.config().feign();
-        String baseUrl = feign.path("baseUrl").asText();
-        String pathTpl = feign.path("path").asText();
-        String method = feign.path("method").asText("GET");
-        int timeoutMs = feign.path("timeoutMs").asInt(3000);
-        Map<String, String> secrets = System.getenv();
-        String path = tpl.render(pathTpl, args, secrets);
+        WebClient.ResponseSpec spec = reqSpec.retrieve();
+        if (feignSemantics) spec = spec.onStatus(s -> true, r -> Mono.empty());
+        long limit = plan.maxResponseBytes();
+        return spec.toEntityFlux(DataBuffer.class).map(entity -> {
+            // Reject early when the upstream announces an oversized body
+            if (entity.getHeaders().getContentLength() > limit) {
+                throw new DataBufferLimitException("Content-Length exceeds " + limit);
+            }
+            Flux<DataBuffer> content = entity.getBody();
+            return new UpstreamResponse(entity.getStatusCode().value(), content != null ? content : Flux.empty(),
+                    entity.getHeaders().getContentLength());
+        });
+    }
 
-        // headers
-        Map<String, Collection<String>> headers = new LinkedHashMap<>();
-        if (feign.has("headers")) {
-            Iterator<String> f = feign.get("headers").fieldNames();
-            while (f.hasNext()) {
-                String k = f.next();
-                String v = tpl.render(feign.get("headers").get(k).asText(), args, secrets);
-                headers.put(k, List.of(v));
+    private Mono<UpstreamResponse> execFeign(ToolPlan plan, UpstreamClient upstream, String url, HttpHeaders headers,
+                                             String body) {
+        return Mono.fromCallable(() -> {
+            int timeoutMs = (int) plan.timeout().toMillis();
+            Map<String, Collection<String>> feignHeaders = new LinkedHashMap<>();
+            headers.forEach(feignHeaders::put);
+            Request req = Request.create(
+                    plan.feignMethod(),
+                    url,
+                    feignHeaders,
+                    body != null ? body.getBytes(StandardCharsets.UTF_8) : null,
+                    StandardCharsets.UTF_8,
+                    null
+            );
+            upstream.feignCallStarted();
+            Response resp = null;
+            try {
+                resp = upstream.feignClient().execute(req, new feign.Request.Options(timeoutMs, TimeUnit.MILLISECONDS, timeoutMs, TimeUnit.MILLISECONDS, true));
+                byte[] content = bodyOf(resp, plan.maxResponseBytes());
+                return new UpstreamResponse(resp.status(), content.length == 0 ? Flux.empty() : Flux.just(UNPOOLED.wrap(content)),
+                        content.length);
+            } finally {
+                if (resp != null) resp.close();
+                upstream.feignCallFinished();
             }
-        }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
 
-        byte[] body = new byte[0];
-        if (feign.has("body")) {
-            String bodyStr = tpl.render(feign.get("body").toString(), args, secrets);
-            body = bodyStr.getBytes(StandardCharsets.UTF_8);
-            headers.putIfAbsent("Content-Type", List.of("application/json"));
+    // Read on the worker within the call, so the connection and the in-flight count are released with it
+    private static byte[] bodyOf(Response resp, long limit) throws IOException {
+        if (resp.body() == null) return new byte[0];
+        Integer length = resp.body().length();
+        if (length != null && length > limit) {
+            throw new DataBufferLimitException("Content-Length exceeds " + limit);
+        }
+        try (InputStream in = resp.body().asInputStream()) {
+            byte[] content = in.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+            if (content.length > limit) throw new DataBufferLimitException("Upstream response exceeds " + limit + " bytes");
+            return content;
         }
+    }
 
-        Request req = Request.create(
-                Request.HttpMethod.valueOf(method),
-                baseUrl + path,
-                headers,
-                body,
-                StandardCharsets.UTF_8,
-                null
-        );
-        Client client = new feign.okhttp.OkHttpClient();
-        Response resp = client.execute(req, new feign.Request.Options(timeoutMs, TimeUnit.MILLISECONDS, timeoutMs, TimeUnit.MILLISECONDS, true));
-        String bodyStr = resp.body() != null ? new String(resp.body().asInputStream().readAllBytes(), StandardCharsets.UTF_8) : "{}";
+    // One unpooled copy: a result that is never written holds neither pooled memory nor a connection
+    private static Mono<Flux<DataBuffer>> buffered(Flux<DataBuffer> body, long limit) {
+        return DataBufferUtils.join(body, (int) Math.min(limit, Integer.MAX_VALUE))
+                .map(buf -> {
+                    byte[] content = new byte[buf.readableByteCount()];
+                    buf.read(content);
+                    DataBufferUtils.release(buf);
+                    return Flux.just(UNPOOLED.wrap(content));
+                })
+                .defaultIfEmpty(Flux.empty());
+    }
+
+    private UpstreamClient upstream(ToolPlan plan, URI url) {
+        return plan.upstream() != null ? plan.upstream() : clients.forUri(url, plan.timeout(), plan.http2());
+    }
+
+    private Map<String, Object> ok(Object result) {
         Map<String, Object> ok = new LinkedHashMap<>();
         ok.put("ok", true);
-        ok.put("result", om.readTree(bodyStr));
+        ok.put("result", result);
         return ok;
     }
 
@@ -156,4 +305,3 @@ public class ToolExecutor {
         return err;
     }
 }
-
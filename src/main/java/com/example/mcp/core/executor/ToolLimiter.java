@@ -0,0 +1,237 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for upstream calls, configured by a tool's {@code limits} block (or globally
+ * from {@code app.limits.*}):
+ * <pre>{"maxConcurrency": 20, "ratePerSec": 50, "burst": 100, "queue": 100, "queueTimeoutMs": 500,
+ *  "adaptive": true, "minConcurrency": 2}</pre>
+ * Rejections come back as results with a distinct code instead of waiting: RATE_LIMITED, OVERLOADED
+ * (no permit and the queue is full) and QUEUE_TIMEOUT. Permits, queue slots and the token bucket are
+ * plain atomics; nothing here takes a lock.
+ * <p>
+ * With {@code adaptive} the concurrency limit moves between {@code minConcurrency} and
+ * {@code maxConcurrency} following the gradient between the long-term and the current latency:
+ * it shrinks as soon as the upstream slows down and grows back while latency stays flat.
+ */
+public final class ToolLimiter {
+    public static final String RATE_LIMITED = "RATE_LIMITED";
+    public static final String OVERLOADED = "OVERLOADED";
+    public static final String QUEUE_TIMEOUT = "QUEUE_TIMEOUT";
+
+    private static final double LONG_RTT_SMOOTHING = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int maxConcurrency;
+    private final int minConcurrency;
+    private final boolean adaptive;
+    private final int queueSize;
+    private final Duration queueTimeout;
+    private final long nanosPerToken; // 0 = no rate limit
+    private final long burstNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    // GCRA: the instant the bucket is full again; a call is admitted while it is at most burst ahead of now
+    private final AtomicLong bucketFullAt = new AtomicLong(System.nanoTime());
+
+    // Adaptive state; estimates tolerate the odd lost update between racing completions
+    private volatile int limit;
+    private volatile double estimate;
+    private volatile double longRttNanos;
+
+    private final LongAdder rejectedRate = new LongAdder();
+    private final LongAdder rejectedOverload = new LongAdder();
+    private final LongAdder queueTimeouts = new LongAdder();
+
+    public ToolLimiter(int maxConcurrency, int minConcurrency, boolean adaptive, double ratePerSec, int burst,
+                       int queueSize, Duration queueTimeout) {
+        this.maxConcurrency = maxConcurrency > 0 ? maxConcurrency : Integer.MAX_VALUE;
+        this.adaptive = adaptive && maxConcurrency > 0;
+        this.minConcurrency = Math.max(1, Math.min(minConcurrency, this.maxConcurrency));
+        this.limit = this.maxConcurrency;
+        this.estimate = this.maxConcurrency;
+        this.queueSize = Math.max(0, queueSize);
+        this.queueTimeout = queueTimeout;
+        this.nanosPerToken = ratePerSec > 0 ? (long) (1_000_000_000L / ratePerSec) : 0;
+        this.burstNanos = nanosPerToken * Math.max(1, burst);
+    }
+
+    /** Returns null when the block is absent, disabled or sets no limit. */
+    public static ToolLimiter compile(JsonNode cfg) {
+        if (cfg == null || !cfg.isObject() || !cfg.path("enabled").asBoolean(true)) return null;
+        int max = cfg.path("maxConcurrency").asInt(0);
+        double rate = cfg.path("ratePerSec").asDouble(0);
+        if (max <= 0 && rate <= 0) return null;
+        return new ToolLimiter(max,
+                cfg.path("minConcurrency").asInt(1),
+                cfg.path("adaptive").asBoolean(false),
+                rate,
+                cfg.path("burst").asInt((int) Math.max(1, Math.ceil(rate))),
+                cfg.path("queue").asInt(0),
+                Duration.ofMillis(cfg.path("queueTimeoutMs").asLong(1000)));
+    }
+
+    /** Runs the call once admitted; the permit is held until its result is emitted. */
+    public Mono<Map<String, Object>> run(Supplier<Mono<Map<String, Object>>> call) {
+        return Mono.defer(() -> {
+            if (!takeToken()) {
+                rejectedRate.increment();
+                return Mono.just(rejected(RATE_LIMITED, "Rate limit exceeded"));
+            }
+            if (tryAcquire()) return execute(call);
+            if (!tryEnqueue()) {
+                rejectedOverload.increment();
+                return Mono.just(rejected(OVERLOADED, "Too many concurrent calls"));
+            }
+            Waiter w = new Waiter();
+            return Mono.<Boolean>create(sink -> {
+                        w.sink = sink;
+                        sink.onCancel(w::cancel);
+                        waiters.offer(w);
+                        // A permit may have been released between tryAcquire and offer
+                        drain();
+                    })
+                    .timeout(queueTimeout)
+                    // Only the wait for a slot; a timeout of the call itself is its own error
+                    .onErrorResume(TimeoutException.class, e -> Mono.just(Boolean.FALSE))
+                    .flatMap(admitted -> {
+                        if (!admitted) {
+                            queueTimeouts.increment();
+                            return Mono.just(rejected(QUEUE_TIMEOUT, "Timed out waiting for a free slot"));
+                        }
+                        return w.start() ? execute(call) : Mono.empty();
+                    });
+        });
+    }
+
+    private Mono<Map<String, Object>> execute(Supplier<Mono<Map<String, Object>>> call) {
+        long start = System.nanoTime();
+        return Mono.defer(call).doFinally(s -> {
+            if (adaptive) sample(System.nanoTime() - start);
+            release();
+        });
+    }
+
+    private boolean takeToken() {
+        if (nanosPerToken == 0) return true;
+        long now = System.nanoTime();
+        while (true) {
+            long full = bucketFullAt.get();
+            long next = Math.max(full, now) + nanosPerToken;
+            if (next - now > burstNanos) return false;
+            if (bucketFullAt.compareAndSet(full, next)) return true;
+        }
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int n = inFlight.get();
+            if (n >= limit) return false;
+            if (inFlight.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    private boolean tryEnqueue() {
+        while (true) {
+            int n = queued.get();
+            if (n >= queueSize) return false;
+            if (queued.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    // Hands free permits to queued callers; a caller that gave up returns its permit straight away
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquire()) {
+            Waiter w = waiters.poll();
+            if (w == null || !w.claim()) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            w.sink.success(Boolean.TRUE);
+        }
+    }
+
+    private void sample(long rttNanos) {
+        double longRtt = longRttNanos;
+        longRtt = longRtt == 0 ? rttNanos : longRtt * (1 - LONG_RTT_SMOOTHING) + rttNanos * LONG_RTT_SMOOTHING;
+        longRttNanos = longRtt;
+        double current = estimate;
+        // Only grow when the limit is actually being used, otherwise idle tools drift to the maximum
+        if (inFlight.get() < current / 2 && rttNanos <= longRtt) return;
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / rttNanos));
+        double target = current * gradient + Math.sqrt(current);
+        double next = Math.max(minConcurrency, Math.min(maxConcurrency,
+                current * (1 - LIMIT_SMOOTHING) + target * LIMIT_SMOOTHING));
+        estimate = next;
+        limit = (int) next;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("inFlight", inFlight.get());
+        m.put("limit", limit == Integer.MAX_VALUE ? null : limit);
+        m.put("queued", queued.get());
+        m.put("rejectedRate", rejectedRate.sum());
+        m.put("rejectedOverload", rejectedOverload.sum());
+        m.put("queueTimeouts", queueTimeouts.sum());
+        return m;
+    }
+
+    private static Map<String, Object> rejected(String code, String message) {
+        Map<String, Object> err = new LinkedHashMap<>();
+        err.put("ok", false);
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("code", code);
+        e.put("message", message);
+        err.put("error", e);
+        return err;
+    }
+
+    /**
+     * A queued caller. A permit handed over by {@link #drain()} belongs to the waiter until it starts
+     * the call; a waiter cancelled (or timed out) in between gives the permit back.
+     */
+    private final class Waiter {
+        private static final int WAITING = 0, GRANTED = 1, STARTED = 2, CANCELLED = 3;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        volatile MonoSink<Boolean> sink;
+
+        boolean claim() {
+            return state.compareAndSet(WAITING, GRANTED);
+        }
+
+        boolean start() {
+            return state.compareAndSet(GRANTED, STARTED);
+        }
+
+        void cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                queued.decrementAndGet();
+                waiters.remove(this);
+            } else if (state.compareAndSet(GRANTED, CANCELLED)) {
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.infra.http.UpstreamClient;
+import feign.Request;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Immutable, pre-resolved execution plan of a tool, compiled once per registry refresh.
+ * The per-call path only renders templates against the call arguments.
+ */
+public record ToolPlan(
+        String type, // http | feign | peer
+        HttpMethod method,
+        Request.HttpMethod feignMethod,
+        Template url, // query parameters are already folded in
+        List<Param> headers,
+        Template body, // null when the tool sends no body
+        Duration timeout,
+        boolean http2,
+        UpstreamClient upstream, // null when the origin is templated and resolved per call
+        boolean passthrough, // stream upstream bytes to the caller instead of parsing them
+        long maxResponseBytes,
+        ResponseProjection projection, // null when the whole body is returned; never set for pass-through
+        ToolCache cache, // null when the tool is not cached
+        InFlightCalls inFlight, // null unless identical concurrent calls are coalesced
+        ToolLimiter limiter, // null when the tool sets no limits
+        UpstreamPolicy policy, // null without circuit breaker, retry or hedge
+        SchemaValidator validator, // null when the tool declares no inputSchema
+        SecretBinding secrets // null when no template references a secret
+) {
+    public record Param(String name, Template value) {}
+
+    /** Plan of a tool another node owns in sharded mode: nothing is compiled, calls are forwarded to it. */
+    public static final ToolPlan PEER = new ToolPlan("peer", null, null, null, List.of(), null, null, false, null,
+            false, 0, null, null, null, null, null, null, null);
+
+    public boolean hasBody() { return body != null; }
+}
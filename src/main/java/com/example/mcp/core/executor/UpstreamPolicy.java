@@ -0,0 +1,198 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.core.metrics.LatencyHistogram;
+import com.example.mcp.infra.http.CircuitBreaker;
+import com.example.mcp.infra.http.UpstreamClient;
+import com.example.mcp.infra.http.UpstreamResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Failure handling around the attempts of one tool, declared next to the request in its
+ * {@code http}/{@code feign} block:
+ * <pre>"circuitBreaker": {"windowSize": 50, "minCalls": 20, "failureRate": 0.5, "slowCallMs": 2000,
+ *                    "slowCallRate": 0.8, "openMs": 10000, "halfOpenCalls": 3},
+ * "retry": {"maxAttempts": 3, "backoffMs": 50, "maxBackoffMs": 1000, "jitter": 0.5},
+ * "hedge": {"delayMs": 0, "percentile": 0.95, "minDelayMs": 5, "maxDelayMs": 1000},
+ * "idempotent": true</pre>
+ * Every attempt passes the upstream's breaker. Retries (exponential backoff with jitter) and hedging
+ * (a second attempt after the observed percentile latency, or a fixed {@code delayMs}; the first
+ * response wins and the other attempt is cancelled) only apply to idempotent requests: GET, HEAD, PUT,
+ * DELETE, OPTIONS, or any method with {@code "idempotent": true}.
+ */
+public final class UpstreamPolicy {
+    private static final Set<HttpMethod> IDEMPOTENT =
+            Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS);
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final CircuitBreaker.Spec breaker; // null = no breaker
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final long maxBackoffNanos;
+    private final double jitter;
+    private final boolean hedge;
+    private final long hedgeDelayNanos; // 0 = follow the latency percentile
+    private final double hedgePercentile;
+    private final long minHedgeNanos;
+    private final long maxHedgeNanos;
+    private final LatencyHistogram latency = new LatencyHistogram(60_000);
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    private UpstreamPolicy(CircuitBreaker.Spec breaker, JsonNode retry, JsonNode hedge) {
+        this.breaker = breaker;
+        this.maxAttempts = retry == null ? 1 : Math.max(1, retry.path("maxAttempts").asInt(3));
+        this.backoffNanos = retry == null ? 0 : TimeUnit.MILLISECONDS.toNanos(retry.path("backoffMs").asLong(50));
+        this.maxBackoffNanos = retry == null ? 0 : TimeUnit.MILLISECONDS.toNanos(retry.path("maxBackoffMs").asLong(1000));
+        this.jitter = retry == null ? 0 : Math.max(0, Math.min(1, retry.path("jitter").asDouble(0.5)));
+        this.hedge = hedge != null;
+        this.hedgeDelayNanos = hedge == null ? 0 : TimeUnit.MILLISECONDS.toNanos(hedge.path("delayMs").asLong(0));
+        this.hedgePercentile = hedge == null ? 0 : hedge.path("percentile").asDouble(0.95);
+        this.minHedgeNanos = hedge == null ? 0 : TimeUnit.MILLISECONDS.toNanos(hedge.path("minDelayMs").asLong(5));
+        this.maxHedgeNanos = hedge == null ? 0 : TimeUnit.MILLISECONDS.toNanos(hedge.path("maxDelayMs").asLong(1000));
+    }
+
+    /** Returns null when the block declares none of breaker, retry or hedge. */
+    public static UpstreamPolicy compile(JsonNode block, HttpMethod method) {
+        CircuitBreaker.Spec breaker = CircuitBreaker.Spec.of(block.get("circuitBreaker"));
+        boolean idempotent = block.path("idempotent").asBoolean(IDEMPOTENT.contains(method));
+        JsonNode retry = idempotent ? enabled(block.get("retry")) : null;
+        JsonNode hedge = idempotent ? enabled(block.get("hedge")) : null;
+        if (breaker == null && retry == null && hedge == null) return null;
+        return new UpstreamPolicy(breaker, retry, hedge);
+    }
+
+    private static JsonNode enabled(JsonNode cfg) {
+        return cfg != null && cfg.isObject() && cfg.path("enabled").asBoolean(true) ? cfg : null;
+    }
+
+    public Mono<UpstreamResponse> execute(UpstreamClient upstream, Supplier<Mono<UpstreamResponse>> attempt) {
+        CircuitBreaker cb = breaker != null ? upstream.breaker(breaker) : null;
+        Supplier<Mono<UpstreamResponse>> one = () -> timed(cb, attempt);
+        Supplier<Mono<UpstreamResponse>> call = hedge ? () -> hedged(one) : one;
+        return maxAttempts > 1 ? withRetries(call, 1) : call.get();
+    }
+
+    private Mono<UpstreamResponse> timed(CircuitBreaker cb, Supplier<Mono<UpstreamResponse>> attempt) {
+        return Mono.defer(() -> {
+            long permit = cb != null ? cb.acquire() : 0;
+            long start = System.nanoTime();
+            Mono<UpstreamResponse> res = attempt.get().doOnSuccess(r -> {
+                long took = System.nanoTime() - start;
+                if (r == null || r.status() < 500) latency.record(took);
+                if (cb != null) cb.onResult(permit, r != null && r.status() >= 500, took);
+            });
+            return cb == null ? res : res
+                    .doOnError(e -> cb.onResult(permit, upstreamFault(e), System.nanoTime() - start))
+                    .doOnCancel(() -> cb.onCancel(permit));
+        });
+    }
+
+    /**
+     * Starts a second attempt when the first has not answered within the hedge delay. The first
+     * response wins; the other attempt is cancelled, or drained if it answered in the same instant.
+     * Fails only once every started attempt failed.
+     */
+    private Mono<UpstreamResponse> hedged(Supplier<Mono<UpstreamResponse>> attempt) {
+        return Mono.create(sink -> {
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicInteger outstanding = new AtomicInteger(1);
+            AtomicInteger timer = new AtomicInteger(); // 0 pending, 1 fired, 2 cancelled
+            Disposable.Composite running = Disposables.composite();
+            sink.onDispose(running);
+
+            Consumer<UpstreamResponse> onValue = r -> {
+                if (done.compareAndSet(false, true)) {
+                    sink.success(r);
+                    running.dispose();
+                } else {
+                    r.discard().subscribe();
+                }
+            };
+            Consumer<Throwable> onError = e -> {
+                int left = outstanding.decrementAndGet();
+                boolean last = left == 0 && (timer.compareAndSet(0, 2) || timer.get() == 1);
+                if (last && done.compareAndSet(false, true)) sink.error(e);
+            };
+            Runnable launch = () -> running.add(attempt.get().single().subscribe(onValue, onError));
+
+            launch.run();
+            running.add(Mono.delay(Duration.ofNanos(hedgeDelay())).subscribe(t -> {
+                outstanding.incrementAndGet();
+                if (!done.get() && timer.compareAndSet(0, 1)) {
+                    hedges.increment();
+                    launch.run();
+                } else {
+                    outstanding.decrementAndGet();
+                }
+            }));
+        });
+    }
+
+    private long hedgeDelay() {
+        if (hedgeDelayNanos > 0) return hedgeDelayNanos;
+        if (latency.count() < MIN_HEDGE_SAMPLES) return maxHedgeNanos;
+        return Math.max(minHedgeNanos, Math.min(maxHedgeNanos, latency.percentileNanos(hedgePercentile)));
+    }
+
+    private Mono<UpstreamResponse> withRetries(Supplier<Mono<UpstreamResponse>> call, int attempt) {
+        return call.get()
+                .flatMap(r -> r.status() >= 500 && attempt < maxAttempts
+                        ? r.discard().then(Mono.<UpstreamResponse>error(new RetryableStatus(r.status())))
+                        : Mono.just(r))
+                .onErrorResume(e -> {
+                    if (attempt >= maxAttempts || !retryable(e)) return Mono.error(e);
+                    retries.increment();
+                    return Mono.delay(Duration.ofNanos(backoff(attempt))).then(withRetries(call, attempt + 1));
+                });
+    }
+
+    // Exponential, capped, with up to `jitter` of it taken off at random so retries do not align
+    private long backoff(int attempt) {
+        long base = Math.min(maxBackoffNanos, backoffNanos << Math.min(30, attempt - 1));
+        return (long) (base * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    private static boolean retryable(Throwable e) {
+        return e instanceof RetryableStatus || upstreamFault(e) && !(e instanceof CircuitBreaker.OpenException);
+    }
+
+    // Client errors and our own size guard say nothing about the health of the upstream
+    private static boolean upstreamFault(Throwable e) {
+        if (e instanceof WebClientResponseException w) return w.getStatusCode().is5xxServerError();
+        return !(e instanceof DataBufferLimitException);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("retries", retries.sum());
+        m.put("hedges", hedges.sum());
+        m.put("p95Ms", latency.percentileNanos(0.95) / 1_000_000.0);
+        return m;
+    }
+
+    private static final class RetryableStatus extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RetryableStatus(int status) {
+            super("Upstream answered " + status, null, false, false);
+        }
+    }
+}
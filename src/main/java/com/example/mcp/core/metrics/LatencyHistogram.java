@@ -0,0 +1,122 @@
+package com.example.mcp.core.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear latency histogram: four buckets per power of two of microseconds, so a
+ * percentile is accurate to about 19%. Buckets are striped by thread so event-loop threads do not
+ * contend on the same counters. With a positive {@code decayMs} counts are halved at that interval so
+ * percentiles follow recent behaviour; without it the histogram is cumulative, as Prometheus expects.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 2;
+    private static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+    private final AtomicLongArray[] counts = new AtomicLongArray[STRIPES];
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final long decayNanos;
+    private final AtomicLong nextDecay;
+
+    public LatencyHistogram(long decayMs) {
+        for (int i = 0; i < STRIPES; i++) counts[i] = new AtomicLongArray(BUCKETS);
+        this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMs);
+        this.nextDecay = decayMs > 0 ? new AtomicLong(System.nanoTime() + decayNanos) : null;
+    }
+
+    /** A cumulative histogram. */
+    public LatencyHistogram() {
+        this(0);
+    }
+
+    public void record(long nanos) {
+        if (nextDecay != null) {
+            long now = System.nanoTime();
+            long due = nextDecay.get();
+            if (now - due >= 0 && nextDecay.compareAndSet(due, now + decayNanos)) decay();
+        }
+        long n = Math.max(0, nanos);
+        counts[(int) Thread.currentThread().getId() & (STRIPES - 1)].incrementAndGet(bucket(n / 1000));
+        total.increment();
+        sumNanos.add(n);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    /** Sum of all recorded values; only meaningful for cumulative histograms. */
+    public long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /** Upper bound of the bucket holding the given quantile (0..1), in nanoseconds; 0 when empty. */
+    public long percentileNanos(double q) {
+        return percentileNanos(snapshot(), q);
+    }
+
+    public static long percentileNanos(long[] snapshot, double q) {
+        long n = 0;
+        for (long c : snapshot) n += c;
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return upperBoundMicros(i) * 1000;
+        }
+        return upperBoundMicros(BUCKETS - 1) * 1000;
+    }
+
+    /** Bucket counts merged over all stripes. */
+    public long[] snapshot() {
+        long[] res = new long[BUCKETS];
+        for (AtomicLongArray stripe : counts) {
+            for (int i = 0; i < BUCKETS; i++) res[i] += stripe.get(i);
+        }
+        return res;
+    }
+
+    /**
+     * Number of samples at or below {@code micros}. A bucket straddling the bound counts as above
+     * it, so coarse bounds err on the slow side.
+     */
+    public static long countAtOrBelow(long[] snapshot, long micros) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS && upperBoundMicros(i) <= micros + 1; i++) n += snapshot[i];
+        return n;
+    }
+
+    private void decay() {
+        long removed = 0;
+        for (AtomicLongArray stripe : counts) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long half = stripe.get(i) / 2;
+                if (half > 0) {
+                    stripe.addAndGet(i, -half);
+                    removed += half;
+                }
+            }
+        }
+        total.add(-removed);
+    }
+
+    static int bucket(long micros) {
+        if (micros < (1 << SUB_BITS)) return (int) micros;
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (msb - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return ((msb - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    // Exclusive upper bound of a bucket, in microseconds
+    static long upperBoundMicros(int bucket) {
+        if (bucket < (1 << SUB_BITS)) return bucket + 1;
+        int msb = (bucket >>> SUB_BITS) + SUB_BITS - 1;
+        int sub = bucket & ((1 << SUB_BITS) - 1);
+        return ((long) ((1 << SUB_BITS) + sub + 1)) << (msb - SUB_BITS);
+    }
+}
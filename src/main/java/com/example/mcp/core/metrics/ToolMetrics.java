@@ -0,0 +1,153 @@
+package com.example.mcp.core.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-tool call metrics: calls, errors by code, in-flight calls and latency histograms for the whole
+ * call and for each {@link Phase}. Everything is striped counters, so recording never blocks; the
+ * cost is paid by whoever reads {@link #prometheus()} or {@link #json()}.
+ */
+@Component
+public class ToolMetrics {
+    public enum Phase {
+        QUEUE, // waiting for a concurrency permit
+        RENDER, // rendering URL, headers and body templates
+        UPSTREAM, // request sent until the response body is parsed
+        SERIALIZE, // encoding the reply for the transport
+        WARMUP; // readying a new or changed plan before it is published, once per refresh
+
+        final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    // Prometheus bucket bounds in microseconds; the fine histogram is folded into these on scrape
+    private static final long[] BOUNDS_MICROS = {500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000,
+            250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000};
+    private static final String[] BOUND_LABELS = Arrays.stream(BOUNDS_MICROS)
+            .mapToObj(b -> BigDecimal.valueOf(b, 6).stripTrailingZeros().toPlainString())
+            .toArray(String[]::new);
+
+    private final Map<String, Tool> tools = new ConcurrentHashMap<>();
+
+    public Tool tool(String name) {
+        Tool t = tools.get(name);
+        return t != null ? t : tools.computeIfAbsent(name, n -> new Tool());
+    }
+
+    public static final class Tool {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder inFlight = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+        private Tool() {
+            for (int i = 0; i < phases.length; i++) phases[i] = new LatencyHistogram();
+        }
+
+        /** Returns the start timestamp to hand to {@link #finished}. */
+        public long started() {
+            calls.increment();
+            inFlight.increment();
+            return System.nanoTime();
+        }
+
+        /** {@code errorCode} is null for a successful call. */
+        public void finished(long startNanos, String errorCode) {
+            inFlight.decrement();
+            total.record(System.nanoTime() - startNanos);
+            if (errorCode != null) {
+                LongAdder c = errors.get(errorCode);
+                (c != null ? c : errors.computeIfAbsent(errorCode, k -> new LongAdder())).increment();
+            }
+        }
+
+        public void record(Phase phase, long nanos) {
+            phases[phase.ordinal()].record(nanos);
+        }
+    }
+
+    /** Prometheus text exposition format (version 0.0.4). */
+    public String prometheus() {
+        Map<String, Tool> sorted = new TreeMap<>(tools);
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP mcp_tool_calls_total Tool calls received, including cache hits and rejected calls.\n");
+        sb.append("# TYPE mcp_tool_calls_total counter\n");
+        sorted.forEach((name, t) -> sample(sb, "mcp_tool_calls_total", name, null, t.calls.sum()));
+        sb.append("# HELP mcp_tool_errors_total Tool calls that returned an error, by error code.\n");
+        sb.append("# TYPE mcp_tool_errors_total counter\n");
+        sorted.forEach((name, t) -> new TreeMap<>(t.errors).forEach((code, c) ->
+                sample(sb, "mcp_tool_errors_total", name, "code=\"" + escape(code) + "\"", c.sum())));
+        sb.append("# HELP mcp_tool_in_flight Tool calls currently running.\n");
+        sb.append("# TYPE mcp_tool_in_flight gauge\n");
+        sorted.forEach((name, t) -> sample(sb, "mcp_tool_in_flight", name, null, t.inFlight.sum()));
+        sb.append("# HELP mcp_tool_latency_seconds Tool call latency, end to end (phase=\"total\") and per phase.\n");
+        sb.append("# TYPE mcp_tool_latency_seconds histogram\n");
+        sorted.forEach((name, t) -> {
+            histogram(sb, name, "total", t.total);
+            for (Phase p : Phase.values()) histogram(sb, name, p.label, t.phases[p.ordinal()]);
+        });
+        return sb.toString();
+    }
+
+    private static void histogram(StringBuilder sb, String tool, String phase, LatencyHistogram h) {
+        long[] snap = h.snapshot();
+        long count = Arrays.stream(snap).sum();
+        if (count == 0) return;
+        String labels = "phase=\"" + phase + "\"";
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            sample(sb, "mcp_tool_latency_seconds_bucket", tool,
+                    labels + ",le=\"" + BOUND_LABELS[i] + "\"", LatencyHistogram.countAtOrBelow(snap, BOUNDS_MICROS[i]));
+        }
+        sample(sb, "mcp_tool_latency_seconds_bucket", tool, labels + ",le=\"+Inf\"", count);
+        sb.append("mcp_tool_latency_seconds_sum{tool=\"").append(escape(tool)).append("\",").append(labels).append("} ")
+                .append(h.sumNanos() / 1e9).append('\n');
+        sample(sb, "mcp_tool_latency_seconds_count", tool, labels, count);
+    }
+
+    private static void sample(StringBuilder sb, String metric, String tool, String labels, long value) {
+        sb.append(metric).append("{tool=\"").append(escape(tool)).append('"');
+        if (labels != null) sb.append(',').append(labels);
+        sb.append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String v) {
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public Map<String, Object> json() {
+        Map<String, Object> res = new TreeMap<>();
+        tools.forEach((name, t) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("calls", t.calls.sum());
+            m.put("inFlight", t.inFlight.sum());
+            Map<String, Long> errors = new TreeMap<>();
+            t.errors.forEach((code, c) -> errors.put(code, c.sum()));
+            m.put("errors", errors);
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("total", summary(t.total));
+            for (Phase p : Phase.values()) latency.put(p.label, summary(t.phases[p.ordinal()]));
+            m.put("latency", latency);
+            res.put(name, m);
+        });
+        return res;
+    }
+
+    private static Map<String, Object> summary(LatencyHistogram h) {
+        long[] snap = h.snapshot();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", Arrays.stream(snap).sum());
+        m.put("p50Ms", LatencyHistogram.percentileNanos(snap, 0.50) / 1e6);
+        m.put("p95Ms", LatencyHistogram.percentileNanos(snap, 0.95) / 1e6);
+        m.put("p99Ms", LatencyHistogram.percentileNanos(snap, 0.99) / 1e6);
+        return m;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.mcp.core.registry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Serialized tools/list result for one registry snapshot. Tools are sorted by name and every page
+ * is rendered to bytes once, so listing never touches Jackson. A cursor is the base64url name of the
+ * first tool of the page, which keeps it meaningful across versions.
+ */
+public final class ToolCatalog {
+    private static final byte[] TOOLS_OPEN = "{\"tools\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEXT_CURSOR = "],\"nextCursor\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private final long version;
+    private final String etag;
+    private final String[] names;
+    private final byte[][] tools;
+    private final byte[][] pages;
+    private final int pageSize;
+
+    private ToolCatalog(long version, String[] names, byte[][] tools, int pageSize) {
+        this.version = version;
+        this.names = names;
+        this.tools = tools;
+        this.pageSize = pageSize > 0 ? pageSize : Math.max(1, names.length);
+        this.pages = new byte[Math.max(1, (names.length + this.pageSize - 1) / this.pageSize)][];
+        for (int p = 0; p < pages.length; p++) pages[p] = render(p * this.pageSize);
+        this.etag = digest(tools);
+    }
+
+    public static ToolCatalog of(Collection<ToolHandle> handles, long version, int pageSize, ObjectMapper om) {
+        List<ToolConfig> sorted = new ArrayList<>(handles.size());
+        for (ToolHandle h : handles) sorted.add(h.config());
+        sorted.sort(Comparator.comparing(ToolConfig::name));
+        String[] names = new String[sorted.size()];
+        byte[][] tools = new byte[sorted.size()][];
+        for (int i = 0; i < names.length; i++) {
+            ToolConfig c = sorted.get(i);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", c.name());
+            m.put("description", c.description());
+            m.put("inputSchema", c.inputSchema());
+            names[i] = c.name();
+            try {
+                tools[i] = om.writeValueAsBytes(m);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize tool " + c.name(), e);
+            }
+        }
+        return new ToolCatalog(version, names, tools, pageSize);
+    }
+
+    public static ToolCatalog empty() {
+        return new ToolCatalog(-1, new String[0], new byte[0][], 0);
+    }
+
+    public long version() { return version; }
+
+    /** Content hash of the whole list; equal catalogs have equal tags whatever their version. */
+    public String etag() { return etag; }
+
+    public int size() { return names.length; }
+
+    /**
+     * The {@code {"tools":[...],"nextCursor":"..."}} result for the page starting at {@code cursor}
+     * (first page when null or blank).
+     *
+     * @throws IllegalArgumentException if the cursor is not one this server handed out
+     */
+    public byte[] page(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return pages[0];
+        String name;
+        try {
+            name = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int idx = Arrays.binarySearch(names, name);
+        // The tool the cursor points at was removed since: continue with the next one
+        if (idx < 0) idx = -idx - 1;
+        return idx % pageSize == 0 && idx / pageSize < pages.length ? pages[idx / pageSize] : render(idx);
+    }
+
+    private byte[] render(int from) {
+        int to = Math.min(names.length, from + pageSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(TOOLS_OPEN);
+        for (int i = from; i < to; i++) {
+            if (i > from) out.write(',');
+            out.writeBytes(tools[i]);
+        }
+        if (to < names.length) {
+            out.writeBytes(NEXT_CURSOR);
+            out.writeBytes(Base64.getUrlEncoder().withoutPadding()
+                    .encode(names[to].getBytes(StandardCharsets.UTF_8)));
+            out.write('"');
+        } else {
+            out.write(']');
+        }
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[][] tools) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (byte[] t : tools) {
+                md.update(t);
+                md.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(md.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
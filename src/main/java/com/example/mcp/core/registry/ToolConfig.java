@@ -1,6 +1,7 @@
 package com.example.mcp.core.registry;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
 
 public record ToolConfig(
         String name,
@@ -8,6 +9,32 @@ public record ToolConfig(
         String type, // http | feign
         JsonNode inputSchema,
         JsonNode http,
-        JsonNode feign
-) {}
+        JsonNode feign,
+        JsonNode response,
+        JsonNode cache,
+        JsonNode limits,
+        boolean coalesce // share one upstream call among concurrent identical calls
+) {
+    /** Reads the {@code config_json} of a tool row; absent blocks become missing nodes. */
+    public static ToolConfig of(JsonNode node) {
+        return new ToolConfig(
+                node.path("name").asText(),
+                node.path("description").asText(null),
+                node.path("type").asText(),
+                node.path("inputSchema"),
+                node.path("http"),
+                node.path("feign"),
+                node.path("response"),
+                node.path("cache"),
+                node.path("limits"),
+                node.path("coalesce").asBoolean(false)
+        );
+    }
+
+    /** What {@code tools/list} needs, for tools published here but owned by another node. */
+    public ToolConfig listing() {
+        JsonNode none = MissingNode.getInstance();
+        return new ToolConfig(name, description, type, inputSchema, none, none, none, none, none, false);
+    }
+}
 
@@ -1,4 +1,5 @@
 package com.example.mcp.core.registry;
 
-public record ToolHandle(ToolConfig config) {}
+import com.example.mcp.core.executor.ToolPlan;
 
+public record ToolHandle(ToolConfig config, ToolPlan plan) {}
@@ -1,34 +1,54 @@
 package com.example.mcp.core.registry;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class ToolRegistry {
-    private final AtomicReference<Map<String, ToolHandle>> snapshot = new AtomicReference<>(Map.of());
-
-    public List<Map<String, Object>> list() {
-        Map<String, ToolHandle> snap = snapshot.get();
-        List<Map<String, Object>> res = new ArrayList<>();
-        for (ToolHandle h : snap.values()) {
-            ToolConfig c = h.config();
-            Map<String, Object> m = new LinkedHashMap<>();
-            m.put("name", c.name());
-            m.put("description", c.description());
-            m.put("inputSchema", c.inputSchema());
-            res.add(m);
-        }
-        return res;
+    private record State(Map<String, ToolHandle> tools, ToolCatalog catalog) {}
+
+    private final AtomicReference<State> state = new AtomicReference<>(new State(Map.of(), ToolCatalog.empty()));
+    private final Sinks.Many<ToolCatalog> changes = Sinks.many().multicast().directBestEffort();
+    private final ObjectMapper om;
+    private final int pageSize;
+
+    public ToolRegistry(ObjectMapper om, @Value("${app.mcp.tools-page-size:500}") int pageSize) {
+        this.om = om;
+        this.pageSize = pageSize;
+    }
+
+    /** Precomputed tools/list for the current snapshot. */
+    public ToolCatalog catalog() {
+        return state.get().catalog();
+    }
+
+    /** Emits the new catalog whenever the listed tools actually change. */
+    public Flux<ToolCatalog> changes() {
+        return changes.asFlux();
+    }
+
+    public Map<String, ToolHandle> snapshot() {
+        return state.get().tools();
+    }
+
+    public Collection<ToolHandle> handles() {
+        return state.get().tools().values();
     }
 
     public Optional<ToolHandle> get(String name) {
-        return Optional.ofNullable(snapshot.get().get(name));
+        return Optional.ofNullable(state.get().tools().get(name));
     }
 
-    public void replace(Map<String, ToolHandle> newSnap) {
-        snapshot.set(Collections.unmodifiableMap(newSnap));
+    /** Publishes a new snapshot; callers serialize (DbRefresher applies deltas under its own lock). */
+    public void replace(Map<String, ToolHandle> newSnap, long version) {
+        ToolCatalog catalog = ToolCatalog.of(newSnap.values(), version, pageSize, om);
+        State prev = state.getAndSet(new State(Collections.unmodifiableMap(newSnap), catalog));
+        if (!prev.catalog().etag().equals(catalog.etag())) changes.tryEmitNext(catalog);
     }
 }
-
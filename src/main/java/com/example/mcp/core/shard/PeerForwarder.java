@@ -0,0 +1,240 @@
+package com.example.mcp.core.shard;
+
+import com.example.mcp.core.executor.StreamingBody;
+import com.example.mcp.core.executor.ToolLimiter;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends {@code tools/call} for tools owned by another node to that node's {@code /mcp/ws}, over
+ * {@code app.shard.connections} persistent connections per peer used in turn. Connections are
+ * opened on first use and reopened on the next call after they drop; calls in flight on a dropped
+ * connection fail with {@link #PEER_UNAVAILABLE}, there is no failover to another node.
+ */
+@Component
+public class PeerForwarder {
+    /** Marks a session opened by a peer: calls arriving on it are never forwarded again. */
+    public static final String PEER_HEADER = "X-Mcp-Peer";
+    public static final String PEER_UNAVAILABLE = "PEER_UNAVAILABLE";
+    private static final Logger log = LoggerFactory.getLogger(PeerForwarder.class);
+    // Netty buffers like an upstream body's, so the WebSocket reply can join them behind its envelope
+    private static final NettyDataBufferFactory BUFFERS = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    private final ShardRing ring;
+    private final ObjectMapper om;
+    private final int connections;
+    private final Duration timeout;
+    private final HttpClient.WebsocketSender client;
+    private final int maxFrameBytes;
+    private final Map<String, Channel[]> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong ids = new AtomicLong();
+
+    public PeerForwarder(ShardRing ring, ObjectMapper om,
+                         @Value("${app.shard.connections:4}") int connections,
+                         @Value("${app.shard.forward-timeout-ms:30000}") long timeoutMs,
+                         @Value("${app.upstream.max-response-bytes:16777216}") long maxResponseBytes) {
+        this.ring = ring;
+        this.om = om;
+        this.connections = Math.max(1, connections);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        // A forwarded result is one frame carrying the owner's whole reply, escaped JSON included
+        this.maxFrameBytes = (int) Math.min(Integer.MAX_VALUE, 2 * maxResponseBytes + 65536);
+        this.client = HttpClient.create()
+                .headers(h -> h.set(PEER_HEADER, ring.self()))
+                .websocket(WebsocketClientSpec.builder().maxFramePayloadLength(maxFrameBytes).build());
+    }
+
+    /**
+     * The owner's answer with the shape of a local call's: its {@code content} handed over raw as a
+     * {@link StreamingBody}, or its error mapped back to an executor code.
+     */
+    public Mono<Map<String, Object>> call(String tool, JsonNode args) {
+        String node = ring.owner(tool);
+        return Mono.defer(() -> channel(node).call(tool, args))
+                .timeout(timeout, Mono.fromSupplier(() -> error(PEER_UNAVAILABLE,
+                        "No answer from " + node + " within " + timeout.toMillis() + " ms")));
+    }
+
+    private Channel channel(String node) {
+        Channel[] slots = channels.computeIfAbsent(node, n -> new Channel[connections]);
+        int i = Math.floorMod(next.getAndIncrement(), slots.length);
+        synchronized (slots) {
+            Channel c = slots[i];
+            if (c == null || c.closed) slots[i] = c = new Channel(node);
+            return c;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Channel[] slots : channels.values()) {
+            synchronized (slots) {
+                for (Channel c : slots) if (c != null) c.connection.dispose();
+            }
+        }
+    }
+
+    /** One connection: requests go out through a queue drained by the socket, replies are matched by id. */
+    private final class Channel {
+        private final String node;
+        private final Sinks.Many<String> out = Sinks.many().unicast().onBackpressureBuffer();
+        private final Map<Long, MonoSink<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+        private final Disposable connection;
+        private volatile boolean closed;
+
+        Channel(String node) {
+            this.node = node;
+            this.connection = client.uri("ws://" + node + "/mcp/ws")
+                    .handle((in, o) -> Mono.firstWithSignal(
+                            o.sendString(out.asFlux()).then(),
+                            in.aggregateFrames(maxFrameBytes).receiveFrames().doOnNext(this::onFrame).then()))
+                    .subscribe(null, e -> close(e.getMessage()), () -> close("connection closed"));
+        }
+
+        Mono<Map<String, Object>> call(String tool, JsonNode args) {
+            return Mono.create(sink -> {
+                long id = ids.incrementAndGet();
+                ObjectNode req = om.createObjectNode().put("jsonrpc", "2.0").put("id", id).put("method", "tools/call");
+                req.putObject("params").put("tool", tool).set("arguments", args);
+                pending.put(id, sink);
+                sink.onCancel(() -> {
+                    if (pending.remove(id) != null) {
+                        send("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\",\"params\":{\"requestId\":" + id + "}}");
+                    }
+                });
+                if (!send(req.toString()) && pending.remove(id) != null) {
+                    sink.success(error(PEER_UNAVAILABLE, "Connection to " + node + " is closed"));
+                }
+            });
+        }
+
+        // The sink takes one emitter at a time; close() flips the flag under the same lock
+        private synchronized boolean send(String frame) {
+            return !closed && out.tryEmitNext(frame).isSuccess();
+        }
+
+        private void close(String reason) {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            out.tryEmitComplete();
+            if (!pending.isEmpty()) log.warn("Lost connection to peer {} with {} calls in flight: {}", node, pending.size(), reason);
+            for (Long id : pending.keySet()) {
+                MonoSink<Map<String, Object>> sink = pending.remove(id);
+                if (sink != null) sink.success(error(PEER_UNAVAILABLE, "Connection to " + node + " lost: " + reason));
+            }
+        }
+
+        private void onFrame(WebSocketFrame frame) {
+            if (!(frame instanceof TextWebSocketFrame)) return;
+            byte[] bytes = ByteBufUtil.getBytes(frame.content());
+            try {
+                reply(bytes);
+            } catch (Exception e) {
+                log.warn("Unreadable reply from peer {}: {}", node, e.getMessage());
+            }
+        }
+
+        // Only the reply's id, error and the offsets of result.content are read; the content bytes are passed on as they are
+        private void reply(byte[] bytes) throws Exception {
+            long id = -1;
+            int start = -1, end = -1;
+            JsonNode err = null;
+            try (JsonParser p = om.getFactory().createParser(bytes)) {
+                if (p.nextToken() != JsonToken.START_OBJECT) return;
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    JsonToken t = p.nextToken();
+                    switch (field) {
+                        case "id" -> id = t == JsonToken.VALUE_NUMBER_INT ? p.getLongValue() : -1;
+                        case "error" -> err = p.readValueAsTree();
+                        case "result" -> {
+                            if (t != JsonToken.START_OBJECT) {
+                                p.skipChildren();
+                                break;
+                            }
+                            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                                String name = p.currentName();
+                                p.nextToken();
+                                if ("content".equals(name)) start = (int) p.currentTokenLocation().getByteOffset();
+                                p.skipChildren();
+                                if ("content".equals(name)) end = (int) p.currentLocation().getByteOffset();
+                            }
+                        }
+                        default -> p.skipChildren();
+                    }
+                }
+            }
+            MonoSink<Map<String, Object>> sink = id >= 0 ? pending.remove(id) : null;
+            if (sink == null) return; // a notification, or a call cancelled meanwhile
+            if (err != null) {
+                sink.success(error(executorCode(err.path("code").asInt()), err.path("message").asText()));
+            } else if (start >= 0) {
+                ByteBuffer content = ByteBuffer.wrap(bytes, start, end - start);
+                sink.success(ok(new StreamingBody(Flux.just(BUFFERS.wrap(content)))));
+            } else {
+                sink.success(error("INTERNAL", "Reply from " + node + " has no result content"));
+            }
+        }
+    }
+
+    // Inverse of the JSON-RPC codes the owner's /mcp/ws answers with; other server errors lose their specific code
+    private static String executorCode(int rpcCode) {
+        return switch (rpcCode) {
+            case -32602 -> "INVALID_PARAMS";
+            case -32001 -> ToolLimiter.OVERLOADED;
+            case -32002 -> ToolLimiter.RATE_LIMITED;
+            case -32003 -> ToolLimiter.QUEUE_TIMEOUT;
+            case -32004 -> "NOT_FOUND";
+            case -32005 -> "CIRCUIT_OPEN";
+            default -> "INTERNAL";
+        };
+    }
+
+    private static Map<String, Object> ok(Object result) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("ok", true);
+        res.put("result", result);
+        return res;
+    }
+
+    private static Map<String, Object> error(String code, String message) {
+        Map<String, Object> err = new LinkedHashMap<>();
+        err.put("ok", false);
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("code", code);
+        e.put("message", message);
+        err.put("error", e);
+        return err;
+    }
+}
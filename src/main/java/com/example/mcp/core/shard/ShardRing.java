@@ -0,0 +1,94 @@
+package com.example.mcp.core.shard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring over the nodes of a sharded deployment ({@code app.shard.nodes}, the same
+ * list on every node). Each node owns the tool names hashing into its arcs; {@link #VNODES} points
+ * per node even out the split, and adding a node moves only about 1/n of the tools. When sharding
+ * is off this node owns every tool.
+ */
+@Component
+public class ShardRing {
+    private static final int VNODES = 128;
+
+    private final boolean enabled;
+    private final String self;
+    private final List<String> nodes = new ArrayList<>();
+    private final long[] points; // sorted
+    private final String[] owners; // owner of each point
+
+    public ShardRing(@Value("${app.shard.enabled:false}") boolean enabled,
+                     @Value("${app.shard.self:}") String self,
+                     @Value("${app.shard.nodes:}") String nodes) {
+        this.enabled = enabled;
+        this.self = self.trim();
+        for (String n : nodes.split(",")) {
+            n = n.trim();
+            if (!n.isEmpty() && !this.nodes.contains(n)) this.nodes.add(n);
+        }
+        if (enabled && !this.nodes.contains(this.self)) {
+            throw new IllegalStateException("app.shard.self (" + self + ") must be one of app.shard.nodes");
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        if (enabled) {
+            for (String n : this.nodes) {
+                for (int i = 0; i < VNODES; i++) ring.putIfAbsent(hash(n + "#" + i), n);
+            }
+        }
+        points = new long[ring.size()];
+        owners = new String[ring.size()];
+        int i = 0;
+        for (var e : ring.entrySet()) {
+            points[i] = e.getKey();
+            owners[i++] = e.getValue();
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** This node as listed in {@code app.shard.nodes}: host:port of its HTTP server. */
+    public String self() {
+        return self;
+    }
+
+    /** The node owning {@code tool}: the first point at or after its hash, wrapping around. */
+    public String owner(String tool) {
+        if (!enabled) return self;
+        long h = hash(tool);
+        int lo = 0, hi = points.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (points[mid] < h) lo = mid + 1;
+            else hi = mid;
+        }
+        return owners[lo == points.length ? 0 : lo];
+    }
+
+    public boolean owns(String tool) {
+        return !enabled || owner(tool).equals(self);
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the murmur3 finalizer: FNV alone clusters similar names like tool_1, tool_2
+    static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
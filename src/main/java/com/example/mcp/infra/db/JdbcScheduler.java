@@ -0,0 +1,35 @@
+package com.example.mcp.infra.db;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Blocking JDBC work started from request handlers runs here, never on the event loop. There are as
+ * many threads as pooled connections, so excess work queues here ({@code app.db.queue} tasks, then
+ * fails with a {@link java.util.concurrent.RejectedExecutionException}) rather than holding threads
+ * that wait for a connection.
+ */
+@Component
+public class JdbcScheduler {
+    private final Scheduler scheduler;
+
+    public JdbcScheduler(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int threads,
+                         @Value("${app.db.queue:1000}") int queue) {
+        this.scheduler = Schedulers.newBoundedElastic(threads, queue, "jdbc");
+    }
+
+    public <T> Mono<T> call(Callable<T> work) {
+        return Mono.fromCallable(work).subscribeOn(scheduler);
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduler.dispose();
+    }
+}
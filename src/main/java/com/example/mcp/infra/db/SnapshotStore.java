@@ -0,0 +1,125 @@
+package com.example.mcp.infra.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local copy of the last applied tool rows ({@code app.snapshot.path}, empty = off), so an instance
+ * can serve its tools before the database answers. Layout: magic, format, body length and the CRC32
+ * of the body, then the gzipped body (snapshot version, row count, rows). A file that fails any
+ * check is ignored; it is replaced atomically, so a crash mid-write leaves the previous one.
+ */
+@Component
+public class SnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final int MAGIC = 0x4D435053; // "MCPS"
+    private static final short FORMAT = 1;
+    private static final int HEADER = 4 + 2 + 4 + 4;
+
+    /** Rows come back enabled, without id and timestamp. */
+    public record Snapshot(long version, List<ToolRow> rows) {}
+
+    private final Path path;
+
+    public SnapshotStore(@Value("${app.snapshot.path:}") String path) {
+        this.path = path.isBlank() ? null : Path.of(path);
+    }
+
+    /** The stored snapshot, or null if there is none or it is unreadable. */
+    public Snapshot load() {
+        if (path == null) return null;
+        byte[] file;
+        try {
+            file = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Cannot read tool snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.wrap(file);
+        if (file.length < HEADER || header.getInt() != MAGIC || header.getShort() != FORMAT
+                || header.getInt() != file.length - HEADER) {
+            log.warn("Ignoring tool snapshot {}: unknown format or truncated", path);
+            return null;
+        }
+        int crc = header.getInt();
+        CRC32 check = new CRC32();
+        check.update(file, HEADER, file.length - HEADER);
+        if ((int) check.getValue() != crc) {
+            log.warn("Ignoring tool snapshot {}: checksum mismatch", path);
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new ByteArrayInputStream(file, HEADER, file.length - HEADER)))) {
+            long version = in.readLong();
+            int count = in.readInt();
+            List<ToolRow> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long rowVersion = in.readLong();
+                byte[] config = in.readNBytes(in.readInt());
+                rows.add(new ToolRow(null, name, true, new String(config, StandardCharsets.UTF_8), rowVersion, null));
+            }
+            return new Snapshot(version, rows);
+        } catch (IOException e) {
+            log.warn("Ignoring tool snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Replaces the stored snapshot with the given enabled rows. */
+    public void save(long version, Collection<ToolRow> rows) throws IOException {
+        if (path == null) return;
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(body))) {
+            out.writeLong(version);
+            out.writeInt(rows.size());
+            for (ToolRow r : rows) {
+                byte[] config = r.configJson().getBytes(StandardCharsets.UTF_8);
+                out.writeUTF(r.name());
+                out.writeLong(r.version());
+                out.writeInt(config.length);
+                out.write(config);
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER)
+                .putInt(MAGIC).putShort(FORMAT).putInt(bytes.length).putInt((int) crc.getValue()).flip();
+
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, ByteBuffer.wrap(bytes)};
+            while (parts[1].hasRemaining()) ch.write(parts);
+            ch.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,20 +1,46 @@
 package com.example.mcp.infra.db;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
 public class ToolRepository {
+    private static final String COLUMNS = "id,name,enabled,config_json,version,updated_at";
+    private static final String INSERT = "INSERT INTO mcp_tool(name, enabled, config_json, version) VALUES (?,?,?,?) ";
+    // Row alias form, MySQL 8.0.19+; VALUES(col) is deprecated there but the only form older servers know
+    static final String UPSERT_ALIAS = INSERT + "AS new ON DUPLICATE KEY UPDATE enabled=new.enabled, "
+            + "config_json=new.config_json, version=new.version, updated_at=CURRENT_TIMESTAMP";
+    static final String UPSERT_VALUES = INSERT + "ON DUPLICATE KEY UPDATE enabled=VALUES(enabled), "
+            + "config_json=VALUES(config_json), version=VALUES(version), updated_at=CURRENT_TIMESTAMP";
+    private static final int BATCH_SIZE = 500;
+
+    public record Upsert(String name, boolean enabled, String configJson) {}
+
     private final JdbcTemplate jdbc;
+    private final Resource schema;
+    private volatile String upsert; // chosen on first write, once the server version is known
 
-    public ToolRepository(JdbcTemplate jdbc) {
+    public ToolRepository(JdbcTemplate jdbc,
+                          @Value("${spring.sql.init.schema-locations:classpath:schema.sql}") Resource schema) {
         this.jdbc = jdbc;
+        this.schema = schema;
+    }
+
+    /** Runs the (idempotent) schema script; done on first contact so startup does not need the database. */
+    public void createSchema() {
+        new ResourceDatabasePopulator(schema).execute(jdbc.getDataSource());
     }
 
     private static final RowMapper<ToolRow> MAPPER = new RowMapper<>() {
@@ -25,39 +51,84 @@ public class ToolRepository {
                     rs.getString("name"),
                     rs.getBoolean("enabled"),
                     rs.getString("config_json"),
+                    rs.getLong("version"),
                     rs.getTimestamp("updated_at").toInstant()
             );
         }
     };
 
     public List<ToolRow> findAllEnabled() {
-        return jdbc.query("SELECT id,name,enabled,config_json,updated_at FROM mcp_tool WHERE enabled=1", MAPPER);
+        return jdbc.query("SELECT " + COLUMNS + " FROM mcp_tool WHERE enabled=1", MAPPER);
     }
 
-    public List<ToolRow> findChangedSince(Instant since) {
-        return jdbc.query("SELECT id,name,enabled,config_json,updated_at FROM mcp_tool WHERE updated_at > ?",
-                ps -> ps.setTimestamp(1, java.sql.Timestamp.from(since)), MAPPER);
+    /** Rows written after the given version, enabled or not, in version order. */
+    public List<ToolRow> findChangedSince(long version) {
+        return jdbc.query("SELECT " + COLUMNS + " FROM mcp_tool WHERE version > ? ORDER BY version",
+                ps -> ps.setLong(1, version), MAPPER);
     }
 
+    @Transactional
     public void upsert(String name, boolean enabled, String configJson) {
-        // Try update first
-        int updated = jdbc.update("UPDATE mcp_tool SET enabled=?, config_json=?, updated_at=CURRENT_TIMESTAMP WHERE name=?",
-                enabled ? 1 : 0, configJson, name);
-        if (updated == 0) {
-            jdbc.update("INSERT INTO mcp_tool(name, enabled, config_json) VALUES (?,?,?)",
-                    name, enabled ? 1 : 0, configJson);
+        jdbc.update(upsert(), name, enabled ? 1 : 0, configJson, nextVersions(1));
+    }
+
+    /**
+     * Writes all rows in one transaction, in JDBC batches, under one block of versions taken up front;
+     * rows get increasing versions in list order, so a name listed twice ends up with its last config.
+     */
+    @Transactional
+    public void upsertAll(List<Upsert> rows) {
+        long version = nextVersions(rows.size()) - rows.size();
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>();
+            for (Upsert r : rows.subList(from, Math.min(from + BATCH_SIZE, rows.size()))) {
+                batch.add(new Object[]{r.name(), r.enabled() ? 1 : 0, r.configJson(), ++version});
+            }
+            jdbc.batchUpdate(upsert(), batch);
         }
     }
 
+    @Transactional
     public void setEnabled(String name, boolean enabled) {
-        jdbc.update("UPDATE mcp_tool SET enabled=?, updated_at=CURRENT_TIMESTAMP WHERE name=?",
-                enabled ? 1 : 0, name);
+        jdbc.update("UPDATE mcp_tool SET enabled=?, version=?, updated_at=CURRENT_TIMESTAMP WHERE name=?",
+                enabled ? 1 : 0, nextVersions(1), name);
     }
 
     public ToolRow findByName(String name) {
-        List<ToolRow> list = jdbc.query("SELECT id,name,enabled,config_json,updated_at FROM mcp_tool WHERE name=?",
+        List<ToolRow> list = jdbc.query("SELECT " + COLUMNS + " FROM mcp_tool WHERE name=?",
                 ps -> ps.setString(1, name), MAPPER);
         return list.isEmpty() ? null : list.get(0);
     }
-}
 
+    private String upsert() {
+        String sql = upsert;
+        if (sql == null) {
+            upsert = sql = jdbc.execute((ConnectionCallback<String>) c -> {
+                DatabaseMetaData md = c.getMetaData();
+                return upsertFor(md.getDatabaseProductName(), md.getDatabaseProductVersion());
+            });
+        }
+        return sql;
+    }
+
+    static String upsertFor(String product, String version) {
+        if (!"MySQL".equalsIgnoreCase(product)) return UPSERT_VALUES;
+        int[] v = new int[3];
+        String[] parts = version.split("[^0-9]+", 4);
+        for (int i = 0; i < v.length && i < parts.length; i++) {
+            if (!parts[i].isEmpty()) v[i] = Integer.parseInt(parts[i]);
+        }
+        boolean alias = v[0] > 8 || v[0] == 8 && (v[1] > 0 || v[2] >= 19);
+        return alias ? UPSERT_ALIAS : UPSERT_VALUES;
+    }
+
+    /**
+     * Takes the next {@code n} change versions and returns the highest. The counter row stays locked
+     * until the caller's transaction commits, so versions become visible in commit order and a reader
+     * never skips one.
+     */
+    private long nextVersions(int n) {
+        jdbc.update("UPDATE mcp_tool_version_seq SET v = v + ? WHERE id = 1", n);
+        return jdbc.queryForObject("SELECT v FROM mcp_tool_version_seq WHERE id = 1", Long.class);
+    }
+}
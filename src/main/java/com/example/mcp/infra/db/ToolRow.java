@@ -2,5 +2,4 @@ package com.example.mcp.infra.db;
 
 import java.time.Instant;
 
-public record ToolRow(Long id, String name, boolean enabled, String configJson, Instant updatedAt) {}
-
+public record ToolRow(Long id, String name, boolean enabled, String configJson, long version, Instant updatedAt) {}
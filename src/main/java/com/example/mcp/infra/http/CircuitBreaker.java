@@ -0,0 +1,162 @@
+package com.example.mcp.infra.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-based circuit breaker for one upstream. The window keeps the outcome of the last
+ * {@code windowSize} calls; once it holds {@code minCalls} and the failure or slow-call rate crosses
+ * its threshold the breaker opens and rejects calls for {@code openMs}. Then {@code halfOpenCalls}
+ * probes decide between closing again and another open period. All state is in atomics; only the
+ * move to half-open and handing back a probe slot take the lock.
+ */
+public final class CircuitBreaker {
+    public record Spec(int windowSize, int minCalls, double failureRate, long slowCallNanos, double slowCallRate,
+                       long openNanos, int halfOpenCalls) {
+        /** Returns null when the block is absent or disabled. */
+        public static Spec of(JsonNode cfg) {
+            if (cfg == null || !cfg.isObject() || !cfg.path("enabled").asBoolean(true)) return null;
+            int window = Math.max(1, cfg.path("windowSize").asInt(50));
+            return new Spec(window,
+                    Math.max(1, Math.min(window, cfg.path("minCalls").asInt(Math.min(window, 20)))),
+                    cfg.path("failureRate").asDouble(0.5),
+                    TimeUnit.MILLISECONDS.toNanos(cfg.path("slowCallMs").asLong(Long.MAX_VALUE / 1_000_000)),
+                    cfg.path("slowCallRate").asDouble(1.0),
+                    TimeUnit.MILLISECONDS.toNanos(cfg.path("openMs").asLong(10_000)),
+                    Math.max(1, cfg.path("halfOpenCalls").asInt(3)));
+        }
+    }
+
+    public static final class OpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OpenException(String upstream) {
+            super("Circuit open for " + upstream, null, false, false);
+        }
+    }
+
+    private static final int CLOSED = 0, OPEN = 1, HALF_OPEN = 2;
+    private static final int EMPTY = 0, SUCCESS = 1, FAILURE = 2, SLOW = 4;
+
+    private final Spec spec;
+    private final String upstream;
+    private final AtomicIntegerArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger slow = new AtomicInteger();
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private volatile long openedAt;
+    private final AtomicLong halfOpenPeriod = new AtomicLong(); // numbers the half-open periods, from 1
+    private final AtomicInteger probes = new AtomicInteger();
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+    public CircuitBreaker(Spec spec, String upstream) {
+        this.spec = spec;
+        this.upstream = upstream;
+        this.window = new AtomicIntegerArray(spec.windowSize());
+    }
+
+    /**
+     * Throws {@link OpenException} when the call must not go out. Otherwise returns its permit, to
+     * hand back to {@link #onResult} or {@link #onCancel}: the half-open period whose probe slot the
+     * call took, or 0 when it went out while closed.
+     */
+    public long acquire() {
+        int s = state.get();
+        if (s == OPEN) {
+            if (System.nanoTime() - openedAt < spec.openNanos()) throw new OpenException(upstream);
+            synchronized (this) {
+                if (state.get() == OPEN) {
+                    probes.set(0);
+                    probeSuccesses.set(0);
+                    halfOpenPeriod.incrementAndGet();
+                    state.set(HALF_OPEN);
+                }
+            }
+            s = state.get();
+        }
+        if (s != HALF_OPEN) return 0;
+        long period = halfOpenPeriod.get();
+        if (probes.incrementAndGet() > spec.halfOpenCalls()) {
+            probes.decrementAndGet();
+            throw new OpenException(upstream);
+        }
+        return period;
+    }
+
+    public void onResult(long permit, boolean failure, long durationNanos) {
+        boolean isSlow = durationNanos >= spec.slowCallNanos();
+        if (permit != 0) {
+            // Only probes of the current half-open period decide it
+            if (permit != halfOpenPeriod.get() || state.get() != HALF_OPEN) return;
+            if (failure || isSlow) {
+                trip(HALF_OPEN);
+            } else if (probeSuccesses.incrementAndGet() >= spec.halfOpenCalls() && state.compareAndSet(HALF_OPEN, CLOSED)) {
+                reset();
+            }
+            return;
+        }
+        // A call let through before the breaker opened says nothing about the probes
+        if (state.get() != CLOSED) return;
+        int outcome = (failure ? FAILURE : SUCCESS) | (isSlow ? SLOW : 0);
+        int slot = (int) (cursor.getAndIncrement() % spec.windowSize());
+        int old = window.getAndSet(slot, outcome);
+        if (old == EMPTY) calls.incrementAndGet();
+        failures.addAndGet(bit(outcome, FAILURE) - bit(old, FAILURE));
+        slow.addAndGet(bit(outcome, SLOW) - bit(old, SLOW));
+        int n = calls.get();
+        if (n >= spec.minCalls() && (failures.get() >= spec.failureRate() * n || slow.get() >= spec.slowCallRate() * n)) {
+            trip(CLOSED);
+        }
+    }
+
+    /** A call that was given up (e.g. a cancelled hedge) frees the probe slot it took, if any, without an outcome. */
+    public void onCancel(long permit) {
+        if (permit == 0) return;
+        synchronized (this) {
+            if (permit == halfOpenPeriod.get() && state.get() == HALF_OPEN) probes.decrementAndGet();
+        }
+    }
+
+    public boolean closed() {
+        return state.get() == CLOSED;
+    }
+
+    private void trip(int from) {
+        if (state.compareAndSet(from, OPEN)) {
+            openedAt = System.nanoTime();
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < window.length(); i++) window.set(i, EMPTY);
+        calls.set(0);
+        failures.set(0);
+        slow.set(0);
+    }
+
+    private static int bit(int outcome, int flag) {
+        return (outcome & flag) != 0 ? 1 : 0;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("state", switch (state.get()) {
+            case OPEN -> "open";
+            case HALF_OPEN -> "half-open";
+            default -> "closed";
+        });
+        m.put("calls", calls.get());
+        m.put("failures", failures.get());
+        m.put("slowCalls", slow.get());
+        return m;
+    }
+}
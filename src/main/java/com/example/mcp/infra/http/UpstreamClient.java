@@ -0,0 +1,153 @@
+package com.example.mcp.infra.http;
+
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pooled clients for one {@link UpstreamKey}. The reactive (Netty) and the blocking (OkHttp)
+ * transports are created lazily, so an upstream only used by http tools never opens an OkHttp pool.
+ */
+public final class UpstreamClient {
+    private final UpstreamKey key;
+    private final UpstreamClientManager.PoolSettings pool;
+    private final Map<SocketAddress, ConnectionPoolMetrics> nettyPools = new ConcurrentHashMap<>();
+    private final AtomicInteger feignInFlight = new AtomicInteger();
+    private final Map<CircuitBreaker.Spec, CircuitBreaker> breakers; // owned by the manager, outlives this client
+    private volatile ConnectionProvider provider;
+    private volatile WebClient webClient;
+    private volatile okhttp3.OkHttpClient okHttp;
+    private volatile feign.Client feignClient;
+    volatile long lastUsedNanos = System.nanoTime();
+
+    UpstreamClient(UpstreamKey key, UpstreamClientManager.PoolSettings pool,
+                   Map<CircuitBreaker.Spec, CircuitBreaker> breakers) {
+        this.key = key;
+        this.pool = pool;
+        this.breakers = breakers;
+    }
+
+    public UpstreamKey key() { return key; }
+
+    public WebClient webClient() {
+        lastUsedNanos = System.nanoTime();
+        WebClient c = webClient;
+        if (c != null) return c;
+        synchronized (this) {
+            if (webClient == null) {
+                provider = ConnectionProvider.builder("upstream-" + key.origin())
+                        .maxConnections(pool.maxConnections())
+                        .pendingAcquireMaxCount(pool.pendingAcquireMax())
+                        .pendingAcquireTimeout(pool.pendingAcquireTimeout())
+                        .maxIdleTime(pool.maxIdle())
+                        .maxLifeTime(pool.maxLife())
+                        .evictInBackground(pool.evictInterval())
+                        .metrics(true, () -> new ConnectionProvider.MeterRegistrar() {
+                            @Override
+                            public void registerMetrics(String poolName, String id, SocketAddress remote, ConnectionPoolMetrics m) {
+                                nettyPools.put(remote, m);
+                            }
+
+                            @Override
+                            public void deRegisterMetrics(String poolName, String id, SocketAddress remote) {
+                                nettyPools.remove(remote);
+                            }
+                        })
+                        .build();
+                HttpClient http = HttpClient.create(provider)
+                        .keepAlive(true)
+                        .responseTimeout(key.timeout());
+                if (key.secure()) {
+                    http = key.http2()
+                            ? http.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure()
+                            : http.secure();
+                }
+                webClient = WebClient.builder().clientConnector(new ReactorClientHttpConnector(http)).build();
+            }
+            return webClient;
+        }
+    }
+
+    public feign.Client feignClient() {
+        lastUsedNanos = System.nanoTime();
+        feign.Client c = feignClient;
+        if (c != null) return c;
+        synchronized (this) {
+            if (feignClient == null) {
+                long timeoutMs = key.timeout().toMillis();
+                okHttp = new okhttp3.OkHttpClient.Builder()
+                        .connectionPool(new okhttp3.ConnectionPool(pool.maxIdleConnections(), pool.maxIdle().toMillis(), TimeUnit.MILLISECONDS))
+                        .protocols(key.http2() && key.secure()
+                                ? List.of(okhttp3.Protocol.HTTP_2, okhttp3.Protocol.HTTP_1_1)
+                                : List.of(okhttp3.Protocol.HTTP_1_1))
+                        .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                        .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                        .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                        .followRedirects(true)
+                        .build();
+                feignClient = new feign.okhttp.OkHttpClient(okHttp);
+            }
+            return feignClient;
+        }
+    }
+
+    /**
+     * Breaker state is shared by every tool calling this upstream with the same settings, and kept
+     * when an idle client is dropped and created again.
+     */
+    public CircuitBreaker breaker(CircuitBreaker.Spec spec) {
+        return breakers.computeIfAbsent(spec, s -> new CircuitBreaker(s, key.origin()));
+    }
+
+    /** Tracks blocking calls so OkHttp pool stats can report waiters. */
+    public void feignCallStarted() { feignInFlight.incrementAndGet(); }
+
+    public void feignCallFinished() { feignInFlight.decrementAndGet(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("upstream", key.origin());
+        m.put("timeoutMs", key.timeout().toMillis());
+        m.put("http2", key.http2());
+        if (webClient != null) {
+            int active = 0, idle = 0, pending = 0, allocated = 0;
+            for (ConnectionPoolMetrics p : nettyPools.values()) {
+                active += p.acquiredSize();
+                idle += p.idleSize();
+                pending += p.pendingAcquireSize();
+                allocated += p.allocatedSize();
+            }
+            m.put("netty", Map.of("active", active, "idle", idle, "pendingAcquires", pending,
+                    "allocated", allocated, "maxConnections", pool.maxConnections()));
+        }
+        okhttp3.OkHttpClient ok = okHttp;
+        if (ok != null) {
+            int total = ok.connectionPool().connectionCount();
+            int idle = ok.connectionPool().idleConnectionCount();
+            int active = total - idle;
+            m.put("okhttp", Map.of("active", active, "idle", idle,
+                    "pendingAcquires", Math.max(0, feignInFlight.get() - active)));
+        }
+        if (!breakers.isEmpty()) {
+            m.put("circuitBreakers", breakers.values().stream().map(CircuitBreaker::stats).toList());
+        }
+        return m;
+    }
+
+    void dispose() {
+        if (provider != null) provider.disposeLater().subscribe();
+        okhttp3.OkHttpClient ok = okHttp;
+        if (ok != null) ok.connectionPool().evictAll();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.mcp.infra.http;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one pooled client per upstream origin and timeout/TLS profile, instead of building a
+ * WebClient or OkHttpClient per call.
+ */
+@Component
+public class UpstreamClientManager {
+    record PoolSettings(int maxConnections, int pendingAcquireMax, Duration pendingAcquireTimeout,
+                        Duration maxIdle, Duration maxLife, Duration evictInterval, int maxIdleConnections) {}
+
+    private final Map<UpstreamKey, UpstreamClient> clients = new ConcurrentHashMap<>();
+    // Outside the clients, so an open breaker is not forgotten when its idle client is dropped
+    private final Map<UpstreamKey, Map<CircuitBreaker.Spec, CircuitBreaker>> breakers = new ConcurrentHashMap<>();
+    private final PoolSettings pool;
+
+    public UpstreamClientManager(@Value("${app.upstream.max-connections:200}") int maxConnections,
+                                 @Value("${app.upstream.pending-acquire-max:1000}") int pendingAcquireMax,
+                                 @Value("${app.upstream.pending-acquire-timeout-ms:5000}") long pendingAcquireTimeoutMs,
+                                 @Value("${app.upstream.max-idle-ms:30000}") long maxIdleMs,
+                                 @Value("${app.upstream.max-life-ms:300000}") long maxLifeMs,
+                                 @Value("${app.upstream.evict-interval-ms:10000}") long evictIntervalMs,
+                                 @Value("${app.upstream.max-idle-connections:20}") int maxIdleConnections) {
+        this.pool = new PoolSettings(maxConnections, pendingAcquireMax, Duration.ofMillis(pendingAcquireTimeoutMs),
+                Duration.ofMillis(maxIdleMs), Duration.ofMillis(maxLifeMs), Duration.ofMillis(evictIntervalMs),
+                maxIdleConnections);
+    }
+
+    public UpstreamClient get(UpstreamKey key) {
+        return clients.computeIfAbsent(key,
+                k -> new UpstreamClient(k, pool, breakers.computeIfAbsent(k, x -> new ConcurrentHashMap<>())));
+    }
+
+    /** Per-call lookup for tools whose origin is itself templated. */
+    public UpstreamClient forUri(URI uri, Duration timeout, boolean http2) {
+        return get(UpstreamKey.of(uri, timeout, http2));
+    }
+
+    /**
+     * Drops clients no live plan references and that have been idle longer than the pool idle
+     * time, so a changed tool config releases its old pool without cutting in-flight calls. Their
+     * breakers are kept until they are closed again.
+     */
+    public void retain(Set<UpstreamKey> live) {
+        long idleNanos = pool.maxIdle().toNanos();
+        long now = System.nanoTime();
+        clients.values().removeIf(c -> {
+            if (live.contains(c.key()) || now - c.lastUsedNanos < idleNanos) return false;
+            c.dispose();
+            return true;
+        });
+        breakers.entrySet().removeIf(e -> !clients.containsKey(e.getKey())
+                && e.getValue().values().stream().allMatch(CircuitBreaker::closed));
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> res = new ArrayList<>();
+        for (UpstreamClient c : clients.values()) res.add(c.stats());
+        return res;
+    }
+
+    @PreDestroy
+    public void close() {
+        clients.values().forEach(UpstreamClient::dispose);
+        clients.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mcp.infra.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Identity of a pooled upstream client: origin plus timeout/TLS profile. */
+public record UpstreamKey(String scheme, String host, int port, Duration timeout, boolean http2) {
+    // scheme://host[:port] followed by a path, query or fragment delimiter (or end of a static URL)
+    private static final Pattern ORIGIN = Pattern.compile("^(https?)://([^/:?#{}]+)(?::(\\d+))?(?:[/?#]|$)");
+
+    public boolean secure() { return "https".equals(scheme); }
+
+    public String origin() { return scheme + "://" + host + ":" + port; }
+
+    /** Resolves the key from a rendered URL. */
+    public static UpstreamKey of(URI uri, Duration timeout, boolean http2) {
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme().toLowerCase();
+        return new UpstreamKey(scheme, uri.getHost(), port(scheme, uri.getPort()), timeout, http2);
+    }
+
+    /**
+     * Resolves the key from the literal prefix of a URL template, or returns null when the
+     * origin itself is templated and can only be known per call.
+     */
+    public static UpstreamKey fromPrefix(String literalPrefix, boolean wholeTemplate, Duration timeout, boolean http2) {
+        Matcher m = ORIGIN.matcher(literalPrefix);
+        if (!m.find()) return null;
+        if (m.end() == literalPrefix.length() && !wholeTemplate && !literalPrefix.endsWith("/")
+                && !literalPrefix.endsWith("?") && !literalPrefix.endsWith("#")) {
+            return null; // host may continue in a placeholder
+        }
+        String scheme = m.group(1).toLowerCase();
+        int port = m.group(3) == null ? -1 : Integer.parseInt(m.group(3));
+        return new UpstreamKey(scheme, m.group(2).toLowerCase(), port(scheme, port), timeout, http2);
+    }
+
+    private static int port(String scheme, int port) {
+        if (port > 0) return port;
+        return "https".equals(scheme) ? 443 : 80;
+    }
+}
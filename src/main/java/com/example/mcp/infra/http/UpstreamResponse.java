@@ -0,0 +1,14 @@
+package com.example.mcp.infra.http;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/** Status and not yet consumed body of one upstream attempt; {@code length} is -1 when not announced. */
+public record UpstreamResponse(int status, Flux<DataBuffer> body, long length) {
+    /** Reads and releases a body nobody will use, so the connection goes back to the pool. */
+    public Mono<Void> discard() {
+        return body.doOnNext(DataBufferUtils::release).then().onErrorResume(e -> Mono.empty());
+    }
+}
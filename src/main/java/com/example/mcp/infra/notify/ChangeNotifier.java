@@ -0,0 +1,18 @@
+package com.example.mcp.infra.notify;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Propagates "tool table moved to version N" between server instances, so an admin write is
+ * applied fleet-wide without every pod polling MySQL at a high rate.
+ */
+public interface ChangeNotifier {
+    /** Announces that this instance has committed and applied changes up to the version. */
+    void publish(long version);
+
+    /** Registers a listener for versions announced by any instance. */
+    void subscribe(LongConsumer listener);
+
+    /** Whether other instances hear {@link #publish}; polling may then back off to a safety interval. */
+    boolean reachesPeers();
+}
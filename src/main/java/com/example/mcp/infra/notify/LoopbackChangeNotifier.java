@@ -0,0 +1,26 @@
+package com.example.mcp.infra.notify;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/** In-process only: single-instance deployments keep polling at the regular interval. */
+@Component
+@ConditionalOnProperty(name = "app.notifier.type", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackChangeNotifier implements ChangeNotifier {
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(long version) {
+        for (LongConsumer l : listeners) l.accept(version);
+    }
+
+    @Override
+    public void subscribe(LongConsumer listener) { listeners.add(listener); }
+
+    @Override
+    public boolean reachesPeers() { return false; }
+}
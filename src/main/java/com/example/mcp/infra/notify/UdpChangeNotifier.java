@@ -0,0 +1,88 @@
+package com.example.mcp.infra.notify;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+/**
+ * Fire-and-forget UDP datagrams to a static peer list ({@code app.notifier.udp.peers=host:port,...}).
+ * A lost datagram only delays a peer until its next safety poll, so no acknowledgement is needed.
+ * Several instances on one machine just use different {@code app.notifier.udp.port} values.
+ */
+@Component
+@ConditionalOnProperty(name = "app.notifier.type", havingValue = "udp")
+public class UdpChangeNotifier implements ChangeNotifier {
+    private static final Logger log = LoggerFactory.getLogger(UdpChangeNotifier.class);
+    private static final String PREFIX = "mcp-tools-version:";
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers = new ArrayList<>();
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+    private final Thread receiver;
+
+    public UdpChangeNotifier(@Value("${app.notifier.udp.port:7070}") int port,
+                             @Value("${app.notifier.udp.peers:}") String peers) throws SocketException {
+        for (String p : peers.split(",")) {
+            p = p.trim();
+            if (p.isEmpty()) continue;
+            int i = p.lastIndexOf(':');
+            this.peers.add(new InetSocketAddress(p.substring(0, i), Integer.parseInt(p.substring(i + 1))));
+        }
+        this.socket = new DatagramSocket(port);
+        this.receiver = new Thread(this::receiveLoop, "tool-change-udp");
+        this.receiver.setDaemon(true);
+        this.receiver.start();
+    }
+
+    @Override
+    public void publish(long version) {
+        byte[] msg = (PREFIX + version).getBytes(StandardCharsets.US_ASCII);
+        for (InetSocketAddress peer : peers) {
+            try {
+                socket.send(new DatagramPacket(msg, msg.length, peer));
+            } catch (Exception e) {
+                log.warn("Failed to notify {} of tool version {}: {}", peer, version, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(LongConsumer listener) { listeners.add(listener); }
+
+    @Override
+    public boolean reachesPeers() { return !peers.isEmpty(); }
+
+    private void receiveLoop() {
+        byte[] buf = new byte[64];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket p = new DatagramPacket(buf, buf.length);
+                socket.receive(p);
+                String text = new String(p.getData(), 0, p.getLength(), StandardCharsets.US_ASCII);
+                if (!text.startsWith(PREFIX)) continue;
+                long version = Long.parseLong(text.substring(PREFIX.length()));
+                for (LongConsumer l : listeners) l.accept(version);
+            } catch (Exception e) {
+                if (!socket.isClosed()) log.warn("Dropping tool change datagram: {}", e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        socket.close();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.mcp.infra.secrets;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A local encrypted store ({@code app.secrets.encrypted.path}): a properties file sealed with
+ * AES-256-GCM under {@code app.secrets.encrypted.key} (base64, 32 bytes). Layout: magic, 12-byte
+ * nonce, ciphertext with its tag. The highest-precedence source; it is only decrypted again when the
+ * file's modification time changes. {@link SecretsFileTool} creates keys and store files.
+ */
+@Component
+@Order(2)
+@ConditionalOnProperty(name = "app.secrets.encrypted.path")
+public class EncryptedFileSecretsProvider implements SecretsProvider {
+    private static final byte[] MAGIC = {'M', 'C', 'P', 'E'};
+    private static final int NONCE = 12;
+    private static final int TAG_BITS = 128;
+
+    private final Path path;
+    private final SecretKeySpec key;
+    private FileTime loadedAt;
+    private Map<String, String> loaded = Map.of();
+
+    public EncryptedFileSecretsProvider(@Value("${app.secrets.encrypted.path}") String path,
+                                        @Value("${app.secrets.encrypted.key:}") String key) {
+        this.path = Path.of(path);
+        this.key = key(key);
+    }
+
+    @Override
+    public synchronized Map<String, String> load() throws IOException {
+        FileTime modified = Files.getLastModifiedTime(path);
+        if (modified.equals(loadedAt)) return loaded;
+        Properties props = new Properties();
+        props.load(new StringReader(new String(open(Files.readAllBytes(path), key), StandardCharsets.UTF_8)));
+        Map<String, String> res = new HashMap<>();
+        for (String name : props.stringPropertyNames()) res.put(name, props.getProperty(name));
+        loaded = res;
+        loadedAt = modified;
+        return res;
+    }
+
+    static byte[] open(byte[] file, SecretKeySpec key) throws IOException {
+        if (file.length < MAGIC.length + NONCE || !Arrays.equals(file, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not an encrypted secrets file");
+        }
+        try {
+            Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+            c.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, file, MAGIC.length, NONCE));
+            c.updateAAD(MAGIC);
+            return c.doFinal(file, MAGIC.length + NONCE, file.length - MAGIC.length - NONCE);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot decrypt secrets file: wrong key or damaged file", e);
+        }
+    }
+
+    static byte[] seal(byte[] plain, SecretKeySpec key) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE];
+        new SecureRandom().nextBytes(nonce);
+        Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+        c.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+        c.updateAAD(MAGIC);
+        byte[] sealed = c.doFinal(plain);
+        return ByteBuffer.allocate(MAGIC.length + NONCE + sealed.length).put(MAGIC).put(nonce).put(sealed).array();
+    }
+
+    static SecretKeySpec key(String base64) {
+        byte[] raw = base64.isBlank() ? new byte[0] : Base64.getDecoder().decode(base64.trim());
+        if (raw.length != 32) throw new IllegalStateException("app.secrets.encrypted.key must be 32 bytes, base64-encoded");
+        return new SecretKeySpec(raw, "AES");
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.mcp.infra.secrets;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/** Environment variables, the lowest-precedence source. */
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "app.secrets.env.enabled", havingValue = "true", matchIfMissing = true)
+public class EnvSecretsProvider implements SecretsProvider {
+    @Override
+    public Map<String, String> load() {
+        return System.getenv();
+    }
+}
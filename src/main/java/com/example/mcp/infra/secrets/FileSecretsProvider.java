@@ -0,0 +1,45 @@
+package com.example.mcp.infra.secrets;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A mounted secrets volume ({@code app.secrets.file.dir}): one file per secret, named after its key,
+ * holding its value. A trailing newline is dropped. Hidden entries such as the {@code ..data} links of
+ * a Kubernetes secret volume are skipped; the files they point at appear under their own names.
+ */
+@Component
+@Order(1)
+@ConditionalOnProperty(name = "app.secrets.file.dir")
+public class FileSecretsProvider implements SecretsProvider {
+    private final Path dir;
+
+    public FileSecretsProvider(@Value("${app.secrets.file.dir}") String dir) {
+        this.dir = Path.of(dir);
+    }
+
+    @Override
+    public Map<String, String> load() throws IOException {
+        Map<String, String> res = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String key = f.getFileName().toString();
+                if (key.startsWith(".") || !Files.isRegularFile(f)) continue;
+                String value = Files.readString(f, StandardCharsets.UTF_8);
+                if (value.endsWith("\n")) value = value.substring(0, value.length() - (value.endsWith("\r\n") ? 2 : 1));
+                res.put(key, value);
+            }
+        }
+        return res;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.mcp.infra.secrets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Merged, cached view of every {@link SecretsProvider}, reloaded in the background every
+ * {@code app.secrets.refresh-ms} rather than read per call. Each change bumps the view's version,
+ * which plans compare to re-cut their own secrets. A provider that fails keeps its last values.
+ */
+@Component
+public class SecretStore {
+    private static final Logger log = LoggerFactory.getLogger(SecretStore.class);
+
+    public record View(long version, Map<String, String> values) {}
+
+    private final List<SecretsProvider> providers; // ascending precedence
+    private final Map<SecretsProvider, Map<String, String>> lastGood = new IdentityHashMap<>();
+    private final Set<SecretsProvider> failing = new HashSet<>();
+    private volatile View view = new View(0, Map.of());
+
+    public SecretStore(List<SecretsProvider> providers) {
+        this.providers = providers;
+        refresh();
+    }
+
+    public View view() {
+        return view;
+    }
+
+    @Scheduled(fixedDelayString = "${app.secrets.refresh-ms:10000}", initialDelayString = "${app.secrets.refresh-ms:10000}")
+    public synchronized void refresh() {
+        Map<String, String> merged = new HashMap<>();
+        for (SecretsProvider p : providers) {
+            try {
+                lastGood.put(p, p.load());
+                if (failing.remove(p)) log.info("Secrets from {} readable again", p.getClass().getSimpleName());
+            } catch (Exception e) {
+                // Keep its last values; log the failure once, not on every reload
+                if (failing.add(p)) log.warn("Cannot read secrets from {}: {}", p.getClass().getSimpleName(), e.getMessage());
+            }
+            merged.putAll(lastGood.getOrDefault(p, Map.of()));
+        }
+        View old = view;
+        if (merged.equals(old.values())) return;
+        if (old.version() > 0) {
+            Set<String> changed = new TreeSet<>();
+            merged.forEach((k, v) -> { if (!v.equals(old.values().get(k))) changed.add(k); });
+            old.values().keySet().forEach(k -> { if (!merged.containsKey(k)) changed.add(k); });
+            log.info("Secrets changed: {}", changed);
+        }
+        view = new View(old.version() + 1, Map.copyOf(merged));
+    }
+}
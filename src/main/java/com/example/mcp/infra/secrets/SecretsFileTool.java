@@ -0,0 +1,28 @@
+package com.example.mcp.infra.secrets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Command line companion of {@link EncryptedFileSecretsProvider}: {@code keygen} prints a new key;
+ * {@code seal <key> <in.properties> <out>} writes a store file.
+ */
+public final class SecretsFileTool {
+    private SecretsFileTool() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && args[0].equals("keygen")) {
+            byte[] raw = new byte[32];
+            new SecureRandom().nextBytes(raw);
+            System.out.println(Base64.getEncoder().encodeToString(raw));
+        } else if (args.length == 4 && args[0].equals("seal")) {
+            Files.write(Path.of(args[3]), EncryptedFileSecretsProvider.seal(Files.readAllBytes(Path.of(args[2])),
+                    EncryptedFileSecretsProvider.key(args[1])));
+        } else {
+            System.err.println("usage: keygen | seal <base64 key> <in.properties> <out>");
+            System.exit(2);
+        }
+    }
+}
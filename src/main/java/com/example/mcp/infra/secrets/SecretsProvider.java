@@ -0,0 +1,13 @@
+package com.example.mcp.infra.secrets;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * One source of secret values for {@code {{secrets.X}}} placeholders. {@link SecretStore} reads every
+ * provider on each refresh; where two have the same key, the one with the higher order wins.
+ */
+public interface SecretsProvider {
+    /** All secrets this provider currently has; a failure keeps its previous values in the store. */
+    Map<String, String> load() throws IOException;
+}
@@ -3,6 +3,7 @@ CREATE TABLE IF NOT EXISTS mcp_tool (
   name VARCHAR(200) UNIQUE NOT NULL,
   enabled TINYINT(1) NOT NULL DEFAULT 1,
   config_json JSON NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
   updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 );
 -- Ensure index exists (idempotent across MySQL versions)
@@ -11,4 +12,20 @@ SET @sql := IF(@exists = 0, 'CREATE INDEX idx_mcp_tool_updated_at ON mcp_tool(up
 PREPARE stmt FROM @sql;
 EXECUTE stmt;
 DEALLOCATE PREPARE stmt;
-
+-- Monotonic change version (tables created before it existed get the column added)
+SET @exists := (SELECT COUNT(1) FROM information_schema.columns WHERE table_schema = DATABASE() AND table_name = 'mcp_tool' AND column_name = 'version');
+SET @sql := IF(@exists = 0, 'ALTER TABLE mcp_tool ADD COLUMN version BIGINT NOT NULL DEFAULT 0', 'SELECT 1');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+SET @exists := (SELECT COUNT(1) FROM information_schema.statistics WHERE table_schema = DATABASE() AND table_name = 'mcp_tool' AND index_name = 'idx_mcp_tool_version');
+SET @sql := IF(@exists = 0, 'CREATE INDEX idx_mcp_tool_version ON mcp_tool(version)', 'SELECT 1');
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+-- Single-row counter handing out versions; its row lock serializes writers until commit
+CREATE TABLE IF NOT EXISTS mcp_tool_version_seq (
+  id TINYINT PRIMARY KEY,
+  v BIGINT NOT NULL
+);
+INSERT IGNORE INTO mcp_tool_version_seq(id, v) VALUES (1, 0);
@@ -0,0 +1,105 @@
+package com.example.mcp.adapter.admin;
+
+import com.example.mcp.core.config.DbRefresher;
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.infra.db.JdbcScheduler;
+import com.example.mcp.infra.db.TestDatabase;
+import com.example.mcp.infra.db.ToolRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringJUnitConfig(TestDatabase.class)
+class AdminControllerTest {
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Autowired
+    ToolRepository repo;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final DbRefresher refresher = mock(DbRefresher.class);
+    private final JdbcScheduler scheduler = new JdbcScheduler(2, 10);
+    private AdminController admin;
+
+    @BeforeEach
+    void setUp() {
+        TestDatabase.reset(repo, jdbc);
+        admin = controller(scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void importRefreshesOnce() throws Exception {
+        Map<String, Object> res = admin.importTools(Flux.just(tool("a", 1), tool("b", 1), tool("a", 2))).block();
+
+        assertThat(res).containsEntry("ok", true).containsEntry("imported", 3);
+        assertThat(repo.findAllEnabled()).hasSize(2);
+        assertThat(repo.findByName("a").configJson()).isEqualTo("{\"name\":\"a\",\"v\":2}");
+        verify(refresher, times(1)).refreshNow();
+    }
+
+    @Test
+    void writeStaysOkWhenTheRefreshAfterItFails() throws Exception {
+        doThrow(new IllegalStateException("db went away")).when(refresher).refreshNow();
+
+        assertThat(admin.upsert(tool("a", 1)).block()).containsEntry("ok", true);
+        assertThat(repo.findByName("a")).isNotNull();
+    }
+
+    @Test
+    void fullWriteQueueAnswers503() throws Exception {
+        JdbcScheduler full = mock(JdbcScheduler.class);
+        when(full.call(any())).thenReturn(Mono.error(new RejectedExecutionException("queue full")));
+
+        assertThatThrownBy(() -> controller(full).upsert(tool("a", 1)).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void configThatDoesNotCompileIsRefusedBeforeItIsStored() throws Exception {
+        AdminController.UpsertReq bad = new AdminController.UpsertReq("a", true,
+                om.readTree("{\"name\":\"a\",\"inputSchema\":{\"type\":\"nope\"}}"));
+
+        assertThatThrownBy(() -> admin.upsert(bad).block())
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> admin.importTools(Flux.just(tool("b", 1), bad)).block())
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(repo.findAllEnabled()).isEmpty();
+        verify(refresher, times(0)).refreshNow();
+    }
+
+    private AdminController controller(JdbcScheduler scheduler) {
+        return new AdminController(repo, scheduler, refresher, null, null, null, null, new PlanCompiler(null, null, 1 << 20));
+    }
+
+    private AdminController.UpsertReq tool(String name, int v) throws Exception {
+        return new AdminController.UpsertReq(name, true, om.readTree("{\"name\":\"" + name + "\",\"v\":" + v + "}"));
+    }
+}
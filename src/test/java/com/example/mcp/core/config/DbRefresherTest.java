@@ -0,0 +1,74 @@
+package com.example.mcp.core.config;
+
+import com.example.mcp.core.executor.PlanCompiler;
+import com.example.mcp.core.executor.PlanWarmer;
+import com.example.mcp.core.executor.ToolPlan;
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.example.mcp.core.shard.ShardRing;
+import com.example.mcp.infra.db.SnapshotStore;
+import com.example.mcp.infra.db.ToolRepository;
+import com.example.mcp.infra.db.ToolRow;
+import com.example.mcp.infra.http.UpstreamClientManager;
+import com.example.mcp.infra.notify.LoopbackChangeNotifier;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DbRefresherTest {
+    private final ToolRepository repo = mock(ToolRepository.class);
+    private final SnapshotStore snapshots = mock(SnapshotStore.class);
+    private final PlanCompiler compiler = mock(PlanCompiler.class);
+    private final ToolRegistry registry = new ToolRegistry(new ObjectMapper(), 500);
+    private final DbRefresher refresher = new DbRefresher(repo, snapshots, registry, compiler, mock(PlanWarmer.class),
+            mock(UpstreamClientManager.class), new LoopbackChangeNotifier(), new ShardRing(false, "", ""),
+            new ObjectMapper(), 1000, 30000);
+
+    @Test
+    void reconcileIsRetriedUntilItSucceeds() {
+        when(compiler.compile(any())).thenReturn(ToolPlan.PEER);
+        when(snapshots.load()).thenReturn(new SnapshotStore.Snapshot(5, List.of(row("gone", 1, 5))));
+        refresher.loadSnapshot();
+        assertThat(registry.get("gone")).isPresent();
+
+        when(repo.findChangedSince(-1))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"))
+                .thenReturn(List.of(row("kept", 1, 7)));
+        refresher.refresh();
+        assertThat(registry.get("gone")).isPresent();
+
+        refresher.refresh();
+        assertThat(registry.get("gone")).isEmpty();
+        assertThat(registry.get("kept")).isPresent();
+        assertThat(refresher.lastVersion()).isEqualTo(7);
+    }
+
+    @Test
+    void aRowThatFailsToCompileKeepsThePublishedVersion() {
+        when(compiler.compile(any())).thenReturn(ToolPlan.PEER);
+        when(compiler.compile(argThat((ToolConfig c) -> c.description().equals("v2"))))
+                .thenThrow(new IllegalArgumentException("bad template"));
+        when(repo.findChangedSince(-1)).thenReturn(List.of(row("echo", 1, 1)));
+        refresher.refresh();
+        assertThat(registry.get("echo").orElseThrow().config().description()).isEqualTo("v1");
+
+        when(repo.findChangedSince(1)).thenReturn(List.of(row("echo", 2, 2)));
+        refresher.refresh();
+        assertThat(registry.get("echo").orElseThrow().config().description()).isEqualTo("v1");
+        assertThat(refresher.lastVersion()).isEqualTo(2);
+    }
+
+    private static ToolRow row(String name, int v, long version) {
+        String json = "{\"name\":\"" + name + "\",\"description\":\"v" + v + "\",\"type\":\"http\",\"http\":{\"url\":\"http://up/x\"}}";
+        return new ToolRow(version, name, true, json, version, Instant.now());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.mcp.core.executor;
+
+import com.example.mcp.core.registry.ToolConfig;
+import com.example.mcp.core.registry.ToolHandle;
+import com.example.mcp.core.registry.ToolRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchExecutorTest {
+    private final ObjectMapper om = new ObjectMapper();
+    private final ToolRegistry registry = new ToolRegistry(om, 500);
+    private final ToolExecutor executor = mock(ToolExecutor.class);
+    private final BatchExecutor batches = new BatchExecutor(registry, executor, 100, 8, 10_000);
+
+    @Test
+    void aBodyFailingMidReadOnlyFailsItsOwnCall() throws Exception {
+        ToolHandle ok = handle("ok"), big = handle("big"), reset = handle("reset");
+        registry.replace(Map.of("ok", ok, "big", big, "reset", reset), 1);
+        when(executor.executeReactive(argThat(h -> h == ok), any())).thenReturn(Mono.just(streamed(Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap("{\"a\":1}".getBytes(StandardCharsets.UTF_8))))));
+        when(executor.executeReactive(argThat(h -> h == big), any())).thenReturn(Mono.just(streamed(
+                Flux.error(new DataBufferLimitException("Upstream response exceeds 10 bytes")))));
+        when(executor.executeReactive(argThat(h -> h == reset), any())).thenReturn(Mono.just(streamed(
+                Flux.error(new IOException("Connection reset by peer")))));
+
+        List<BatchExecutor.Result> results = batches.execute(List.of(
+                        new BatchExecutor.Call("big", null),
+                        new BatchExecutor.Call("ok", null),
+                        new BatchExecutor.Call("reset", null)), null, null)
+                .collectSortedList(Comparator.comparingInt(BatchExecutor.Result::index))
+                .block();
+
+        assertThat(results).hasSize(3);
+        assertThat(code(results.get(0))).isEqualTo("RESPONSE_TOO_LARGE");
+        assertThat(om.writeValueAsString(results.get(1).response())).isEqualTo("{\"ok\":true,\"result\":{\"a\":1}}");
+        assertThat(code(results.get(2))).isEqualTo("INTERNAL");
+    }
+
+    @Test
+    void aHungCallIsReportedAtTheDeadlineNextToTheFinishedOnes() throws Exception {
+        ToolHandle fast = handle("fast"), hung = handle("hung");
+        registry.replace(Map.of("fast", fast, "hung", hung), 1);
+        when(executor.executeReactive(argThat(h -> h == fast), any())).thenReturn(Mono.just(Map.of("ok", true, "result", 1)));
+        when(executor.executeReactive(argThat(h -> h == hung), any())).thenReturn(Mono.never());
+
+        List<BatchExecutor.Result> results = batches.execute(List.of(
+                        new BatchExecutor.Call("hung", null),
+                        new BatchExecutor.Call("fast", null)), null, 200L)
+                .collectSortedList(Comparator.comparingInt(BatchExecutor.Result::index))
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results).hasSize(2);
+        assertThat(code(results.get(0))).isEqualTo(BatchExecutor.DEADLINE_EXCEEDED);
+        assertThat(results.get(1).response()).containsEntry("ok", true);
+    }
+
+    private ToolHandle handle(String name) throws Exception {
+        return new ToolHandle(ToolConfig.of(om.readTree("{\"name\":\"" + name + "\",\"type\":\"http\"}")), ToolPlan.PEER);
+    }
+
+    private static Map<String, Object> streamed(Flux<DataBuffer> content) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("ok", true);
+        res.put("result", new StreamingBody(content));
+        return res;
+    }
+
+    private static Object code(BatchExecutor.Result r) {
+        return ((Map<?, ?>) r.response().get("error")).get("code");
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mcp.core.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaValidatorTest {
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private final ObjectMapper om = new ObjectMapper();
+
+    @Test
+    void constComparesNumbersByValue() throws Exception {
+        SchemaValidator v = validator("{\"properties\":{\"n\":{\"const\":1}}}");
+        assertThat(v.validate(args(NODES.numberNode(1.0)))).isNull();
+        assertThat(v.validate(args(NODES.numberNode(1L)))).isNull();
+        assertThat(v.validate(args(NODES.numberNode(new BigDecimal("1.00"))))).isNull();
+        assertThat(v.validate(args(NODES.numberNode(1.5)))).isEqualTo("arguments/n must be 1");
+        assertThat(v.validate(args(NODES.textNode("1")))).isEqualTo("arguments/n must be 1");
+    }
+
+    @Test
+    void enumComparesNumbersByValueAtAnyDepth() throws Exception {
+        SchemaValidator v = validator("{\"properties\":{\"n\":{\"enum\":[2.0, \"x\", {\"a\":[1]}]}}}");
+        assertThat(v.validate(args(NODES.numberNode(2)))).isNull();
+        assertThat(v.validate(args(NODES.numberNode(2L)))).isNull();
+        assertThat(v.validate(args(om.readTree("{\"a\":[1.0]}")))).isNull();
+        assertThat(v.validate(args(NODES.textNode("x")))).isNull();
+        assertThat(v.validate(args(NODES.numberNode(3)))).startsWith("arguments/n must be one of");
+        assertThat(v.validate(args(om.readTree("{\"a\":[1, 2]}")))).startsWith("arguments/n must be one of");
+    }
+
+    private SchemaValidator validator(String schema) throws Exception {
+        return SchemaValidator.compile(om.readTree(schema));
+    }
+
+    private static JsonNode args(JsonNode n) {
+        return NODES.objectNode().set("n", n);
+    }
+}
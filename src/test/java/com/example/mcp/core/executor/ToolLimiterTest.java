@@ -0,0 +1,41 @@
+package com.example.mcp.core.executor;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolLimiterTest {
+    private final ToolLimiter limiter = new ToolLimiter(1, 1, false, 0, 1, 1, Duration.ofMillis(200));
+
+    @Test
+    void aQueuedCallTimingOutUpstreamIsNotAQueueTimeout() {
+        Sinks.One<Map<String, Object>> first = Sinks.one();
+        limiter.run(first::asMono).subscribe();
+        CompletableFuture<Map<String, Object>> queued = limiter
+                .run(() -> Mono.<Map<String, Object>>error(new TimeoutException("upstream")))
+                .toFuture();
+        assertThat(limiter.stats().get("queued")).isEqualTo(1);
+        first.tryEmitValue(Map.of("ok", true));
+
+        assertThatThrownBy(queued::get).hasCauseInstanceOf(TimeoutException.class);
+        assertThat(limiter.stats().get("queueTimeouts")).isEqualTo(0L);
+    }
+
+    @Test
+    void aCallWaitingPastTheQueueTimeoutIsShed() {
+        limiter.run(Mono::never).subscribe();
+
+        Map<String, Object> res = limiter.run(() -> Mono.just(Map.of("ok", true))).block();
+
+        assertThat(((Map<?, ?>) res.get("error")).get("code")).isEqualTo(ToolLimiter.QUEUE_TIMEOUT);
+        assertThat(limiter.stats().get("queueTimeouts")).isEqualTo(1L);
+    }
+}
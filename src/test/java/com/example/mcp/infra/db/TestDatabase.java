@@ -0,0 +1,47 @@
+package com.example.mcp.infra.db;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+
+/** In-memory H2 in MySQL mode behind a transactional {@link ToolRepository}, as the server wires it. */
+@Configuration
+@EnableTransactionManagement
+public class TestDatabase {
+    @Bean
+    public DataSource dataSource() {
+        return new DriverManagerDataSource("jdbc:h2:mem:tools;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    @Bean
+    public ToolRepository toolRepository(JdbcTemplate jdbc) {
+        return new ToolRepository(jdbc, new ClassPathResource("schema-h2.sql"));
+    }
+
+    /** Schema in place and no tools; versions keep counting across tests. */
+    public static void reset(ToolRepository repo, JdbcTemplate jdbc) {
+        repo.createSchema();
+        jdbc.update("DELETE FROM mcp_tool");
+    }
+
+    public static long version(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("SELECT v FROM mcp_tool_version_seq WHERE id = 1", Long.class);
+    }
+}
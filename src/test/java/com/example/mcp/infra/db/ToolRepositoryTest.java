@@ -0,0 +1,93 @@
+package com.example.mcp.infra.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringJUnitConfig(TestDatabase.class)
+class ToolRepositoryTest {
+    @Autowired
+    ToolRepository repo;
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @BeforeEach
+    void reset() {
+        TestDatabase.reset(repo, jdbc);
+    }
+
+    @Test
+    void upsertInsertsThenUpdatesUnderANewVersion() {
+        long before = TestDatabase.version(jdbc);
+        repo.upsert("echo", true, "{\"name\":\"echo\",\"v\":1}");
+        ToolRow first = repo.findByName("echo");
+        assertThat(first.enabled()).isTrue();
+        assertThat(first.configJson()).isEqualTo("{\"name\":\"echo\",\"v\":1}");
+        assertThat(first.version()).isEqualTo(before + 1);
+
+        repo.upsert("echo", false, "{\"name\":\"echo\",\"v\":2}");
+        ToolRow second = repo.findByName("echo");
+        assertThat(second.id()).isEqualTo(first.id());
+        assertThat(second.enabled()).isFalse();
+        assertThat(second.configJson()).isEqualTo("{\"name\":\"echo\",\"v\":2}");
+        assertThat(second.version()).isEqualTo(before + 2);
+        assertThat(repo.findChangedSince(before)).hasSize(1);
+    }
+
+    @Test
+    void importKeepsTheLastConfigOfANameListedTwice() {
+        repo.upsertAll(List.of(
+                new ToolRepository.Upsert("a", true, "{\"name\":\"a\",\"v\":1}"),
+                new ToolRepository.Upsert("b", true, "{\"name\":\"b\"}"),
+                new ToolRepository.Upsert("a", true, "{\"name\":\"a\",\"v\":2}")));
+        assertThat(repo.findByName("a").configJson()).isEqualTo("{\"name\":\"a\",\"v\":2}");
+        assertThat(repo.findByName("a").version()).isGreaterThan(repo.findByName("b").version());
+        assertThat(repo.findAllEnabled()).hasSize(2);
+    }
+
+    @Test
+    void importTakesOneBlockOfVersionsInListOrder() {
+        long before = TestDatabase.version(jdbc);
+        List<ToolRepository.Upsert> rows = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) rows.add(new ToolRepository.Upsert("t" + i, true, "{\"name\":\"t" + i + "\"}"));
+        repo.upsertAll(rows);
+
+        assertThat(TestDatabase.version(jdbc)).isEqualTo(before + 3000);
+        List<ToolRow> changed = repo.findChangedSince(before);
+        assertThat(changed).hasSize(3000);
+        for (int i = 0; i < changed.size(); i++) {
+            assertThat(changed.get(i).name()).isEqualTo("t" + i);
+            assertThat(changed.get(i).version()).isEqualTo(before + 1 + i);
+        }
+    }
+
+    @Test
+    void setEnabledBumpsTheVersion() {
+        repo.upsert("echo", true, "{\"name\":\"echo\"}");
+        long enabledAt = repo.findByName("echo").version();
+
+        repo.setEnabled("echo", false);
+        ToolRow row = repo.findByName("echo");
+        assertThat(row.enabled()).isFalse();
+        assertThat(row.version()).isGreaterThan(enabledAt);
+        assertThat(repo.findAllEnabled()).isEmpty();
+        assertThat(repo.findChangedSince(enabledAt)).extracting(ToolRow::name).containsExactly("echo");
+    }
+
+    @Test
+    void rowAliasOnlyWhereMySqlSupportsIt() {
+        assertThat(ToolRepository.upsertFor("MySQL", "8.0.36")).isEqualTo(ToolRepository.UPSERT_ALIAS);
+        assertThat(ToolRepository.upsertFor("MySQL", "8.0.19")).isEqualTo(ToolRepository.UPSERT_ALIAS);
+        assertThat(ToolRepository.upsertFor("MySQL", "8.4.0")).isEqualTo(ToolRepository.UPSERT_ALIAS);
+        assertThat(ToolRepository.upsertFor("MySQL", "8.0.18")).isEqualTo(ToolRepository.UPSERT_VALUES);
+        assertThat(ToolRepository.upsertFor("MySQL", "5.7.44-log")).isEqualTo(ToolRepository.UPSERT_VALUES);
+        assertThat(ToolRepository.upsertFor("H2", "2.2.224 (2023-09-17)")).isEqualTo(ToolRepository.UPSERT_VALUES);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.mcp.infra.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+    // Opens on the first failure, half-open right away, two probes
+    private static final CircuitBreaker.Spec SPEC = new CircuitBreaker.Spec(1, 1, 0.5, Long.MAX_VALUE, 1.0, 0, 2);
+
+    @Test
+    void cancellingACallLetThroughWhileClosedFreesNoProbeSlot() {
+        CircuitBreaker cb = new CircuitBreaker(SPEC, "http://up");
+        long closedCall = cb.acquire();
+        assertThat(closedCall).isZero();
+        cb.onResult(cb.acquire(), true, 0);
+
+        long probe1 = cb.acquire();
+        long probe2 = cb.acquire();
+        assertThat(probe1).isPositive().isEqualTo(probe2);
+        cb.onCancel(closedCall);
+        assertThatThrownBy(cb::acquire).isInstanceOf(CircuitBreaker.OpenException.class);
+
+        cb.onCancel(probe1);
+        assertThat(cb.acquire()).isEqualTo(probe1);
+        assertThatThrownBy(cb::acquire).isInstanceOf(CircuitBreaker.OpenException.class);
+    }
+
+    @Test
+    void onlyProbesOfTheCurrentPeriodCloseTheBreaker() {
+        CircuitBreaker cb = new CircuitBreaker(SPEC, "http://up");
+        long closedCall = cb.acquire();
+        cb.onResult(cb.acquire(), true, 0);
+        long probe = cb.acquire();
+
+        cb.onResult(closedCall, false, 0);
+        cb.onResult(closedCall, false, 0);
+        assertThat(cb.stats()).containsEntry("state", "half-open");
+
+        cb.onResult(probe, true, 0);
+        long next = cb.acquire();
+        assertThat(next).isGreaterThan(probe);
+        cb.onCancel(probe);
+        cb.onResult(probe, false, 0);
+        assertThat(cb.stats()).containsEntry("state", "half-open");
+        cb.onResult(next, false, 0);
+        cb.onResult(cb.acquire(), false, 0);
+        assertThat(cb.closed()).isTrue();
+    }
+
+    @Test
+    void breakerOutlivesItsDroppedClient() {
+        UpstreamClientManager clients = new UpstreamClientManager(10, 10, 1000, 0, 60_000, 60_000, 1);
+        UpstreamKey key = UpstreamKey.of(URI.create("http://up:8080/x"), Duration.ofSeconds(1), false);
+        UpstreamClient first = clients.get(key);
+        CircuitBreaker cb = first.breaker(SPEC);
+        cb.onResult(cb.acquire(), true, 0);
+
+        clients.retain(Set.of());
+        UpstreamClient second = clients.get(key);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.breaker(SPEC)).isSameAs(cb);
+        assertThat(cb.closed()).isFalse();
+
+        cb.onResult(cb.acquire(), false, 0);
+        cb.onResult(cb.acquire(), false, 0);
+        clients.retain(Set.of());
+        assertThat(clients.get(key).breaker(SPEC)).isNotSameAs(cb);
+    }
+}
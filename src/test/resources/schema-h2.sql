@@ -0,0 +1,16 @@
+-- schema.sql for H2 in MySQL mode: same tables without the MySQL-only index scripting.
+-- config_json is text here, H2's JSON type would store a bound string as a JSON string literal.
+CREATE TABLE IF NOT EXISTS mcp_tool (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  name VARCHAR(200) UNIQUE NOT NULL,
+  enabled TINYINT(1) NOT NULL DEFAULT 1,
+  config_json CLOB NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_mcp_tool_version ON mcp_tool(version);
+CREATE TABLE IF NOT EXISTS mcp_tool_version_seq (
+  id TINYINT PRIMARY KEY,
+  v BIGINT NOT NULL
+);
+INSERT IGNORE INTO mcp_tool_version_seq(id, v) VALUES (1, 0);